@@ -18,8 +18,10 @@
 package org.apache.jmeter.protocol.ssh.sampler;
 
 import com.jcraft.jsch.UIKeyboardInteractive;
+import org.apache.jmeter.engine.StandardJMeterEngine;
 import org.apache.jmeter.samplers.AbstractSampler;
 import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jorphan.logging.LoggingManager;
 import org.apache.log.Logger;
 
@@ -29,15 +31,25 @@ import com.jcraft.jsch.Session;
 import com.jcraft.jsch.UserInfo;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract SSH Sampler that manage SSH connexion and delegates
  * sampling.
  *
  */
-public abstract class AbstractSSHSampler extends AbstractSampler implements TestBean {
+public abstract class AbstractSSHSampler extends AbstractSampler implements TestBean, TestStateListener {
 
     private static final Logger log = LoggingManager.getLoggerForClass();
+    private static final int MAX_WARMUP_THREADS = 64;
     private String hostname = "";
     private int port = 22;
     private String username = "";
@@ -45,12 +57,26 @@ public abstract class AbstractSSHSampler extends AbstractSampler implements Test
     private String sshkeyfile = "";
     private String passphrase = "";
     private int connectionTimeout = 5000;
+    private int warmupSessions = 0;
+    private String jumpHostname = "";
+    private int jumpPort = 22;
+    private String jumpUsername = "";
     
     private String failureReason = "Unknown";
-    private static final JSch jsch = new JSch();
+    // One JSch per key file, so that sessions only offer their own identity
+    private static final ConcurrentMap<String, JSch> jschByKeyFile = new ConcurrentHashMap<String, JSch>();
     private Session session = null;
     private SSHSamplerUserInfo userinfo = null;
 
+    // Sample label cache, rebuilt only when one of its parts changes
+    private transient String sampleLabel = null;
+    private transient String labelName = null;
+    private transient String labelUsername = null;
+    private transient String labelHostname = null;
+    private transient int labelPort = -1;
+
+    private transient ResponseBuffer responseBuffer = null;
+
     public AbstractSSHSampler(String name) {
         super();
         setName(name);
@@ -58,34 +84,268 @@ public abstract class AbstractSSHSampler extends AbstractSampler implements Test
     }
 
     /**
-     * Sets up SSH Session on connection start
+     * Sets up SSH Session on connection start, using a pre-warmed
+     * session when one is available
      */
     public void connect() {
+        failureReason = "Unknown";
+        // The pool key is only computed while warm-up sessions are left
+        session = SSHSessionPool.isEmpty() ? null : SSHSessionPool.poll(getPoolKey());
+        if (session != null) {
+            return;
+        }
         try {
-            failureReason = "Unknown";
-            session = jsch.getSession(getUsername(), getHostname(), getPort());
-            // session.setPassword(getPassword()); // Use a userinfo instead
-            session.setUserInfo(userinfo);
-            if (userinfo.useKeyFile()) {
-                jsch.addIdentity(getSshkeyfile());
-            }
-            session.setConfig("StrictHostKeyChecking", "no");
-            session.setConfig("PreferredAuthentications", "publickey,keyboard-interactive,password");
-            session.connect(connectionTimeout);
+            session = openSession();
         } catch (JSchException e) {
             failureReason = e.getMessage();
-            session.disconnect();
             session = null;
             log.error("SSH connexion error", e);
         }
     }
 
+    /**
+     * Opens and authenticates a new SSH Session
+     *
+     * @return Connected session
+     * @throws JSchException Connection or authentication failure
+     */
+    protected Session openSession() throws JSchException {
+        Session newSession = getJSch().getSession(getUsername(), getHostname(), getPort());
+        try {
+            if (jumpHostname.length() > 0) {
+                newSession.setProxy(new SSHJumpHost.ChannelProxy(getJumpHostSession()));
+            }
+            configureSession(newSession);
+            connectSession(newSession);
+        } catch (JSchException e) {
+            newSession.disconnect();
+            throw e;
+        }
+        return newSession;
+    }
+
+    /**
+     * Returns the key of the sessions this sampler can take from the pool:
+     * same target, same jump host and same credentials
+     */
+    private String getPoolKey() {
+        String route = "";
+        if (jumpHostname.length() > 0) {
+            route = SSHSessionPool.target(getJumpHostUser(), jumpHostname, jumpPort);
+        }
+        return SSHSessionPool.key(SSHSessionPool.target(getUsername(), getHostname(), getPort()), route,
+                getSshkeyfile(), getPassphrase(), getPassword());
+    }
+
+    private String getJumpHostUser() {
+        return jumpUsername.length() > 0 ? jumpUsername : getUsername();
+    }
+
+    /**
+     * Hook called on new target sessions before they are connected, so
+     * that samplers can customize them. Does nothing by default.
+     *
+     * @param newSession Session about to be connected
+     */
+    protected void configureSession(Session newSession) {
+    }
+
+    /**
+     * Returns the bastion session shared by all samplers using the same
+     * jump host, connecting it on first use
+     *
+     * @return Connected bastion session
+     * @throws JSchException Connection or authentication failure to the bastion
+     */
+    private Session getJumpHostSession() throws JSchException {
+        String user = getJumpHostUser();
+        String target = SSHSessionPool.target(user, jumpHostname, jumpPort);
+        String key = SSHSessionPool.key(target, "", getSshkeyfile(), getPassphrase(), getPassword());
+        synchronized (SSHJumpHost.lockFor(key)) {
+            Session bastion = SSHJumpHost.get(key);
+            if (bastion == null) {
+                bastion = getJSch().getSession(user, jumpHostname, jumpPort);
+                try {
+                    connectSession(bastion);
+                } catch (JSchException e) {
+                    bastion.disconnect();
+                    throw e;
+                }
+                log.info("Connected to jump host " + target);
+                SSHJumpHost.put(key, bastion);
+            }
+            return bastion;
+        }
+    }
+
+    /**
+     * Returns the JSch instance holding the identity of the sampler key file
+     * only. Identities added to a JSch instance are offered by all its
+     * sessions, so a shared instance would authenticate with any key file
+     * used earlier in the test.
+     *
+     * @return JSch instance without identity when no key file is set
+     * @throws JSchException Key file cannot be loaded
+     */
+    private JSch getJSch() throws JSchException {
+        String keyFile = getSshkeyfile();
+        JSch jsch = jschByKeyFile.get(keyFile);
+        if (jsch == null) {
+            JSch created = new JSch();
+            if (keyFile.length() > 0) {
+                created.addIdentity(keyFile);
+            }
+            jsch = jschByKeyFile.putIfAbsent(keyFile, created);
+            if (jsch == null) {
+                jsch = created;
+            }
+        }
+        return jsch;
+    }
+
+    /**
+     * Authenticates the session with the sampler credentials
+     */
+    private void connectSession(Session newSession) throws JSchException {
+        // newSession.setPassword(getPassword()); // Use a userinfo instead
+        newSession.setUserInfo(userinfo);
+        newSession.setConfig("StrictHostKeyChecking", "no");
+        newSession.setConfig("PreferredAuthentications", "publickey,keyboard-interactive,password");
+        newSession.connect(connectionTimeout);
+    }
+
     public void disconnect() {
         if (session != null) {
             session.disconnect();
         }
     }
 
+    /**
+     * Opens the configured number of warm-up sessions in parallel, before
+     * the threads start sampling. Stops the test if any of them fails.
+     */
+    private void warmUp() {
+        final String key = getPoolKey();
+        String target = SSHSessionPool.target(getUsername(), getHostname(), getPort());
+        final int count = warmupSessions;
+        final long[] connectTimes = new long[count];
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicReference<String> firstFailure = new AtomicReference<String>();
+        Arrays.fill(connectTimes, -1);
+
+        log.info("SSH warm-up: opening " + count + " sessions to " + target);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(count, MAX_WARMUP_THREADS));
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (failures.get() > 0) {
+                        // Fail fast, the target is already saturated
+                        return;
+                    }
+                    long t0 = System.nanoTime();
+                    try {
+                        SSHSessionPool.offer(key, openSession());
+                        connectTimes[index] = (System.nanoTime() - t0) / 1000000L;
+                    } catch (JSchException e) {
+                        failures.incrementAndGet();
+                        firstFailure.compareAndSet(null, e.getMessage());
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        long wallTime = (System.nanoTime() - start) / 1000000L;
+
+        long[] opened = new long[count];
+        int ok = 0;
+        long total = 0;
+        for (long time : connectTimes) {
+            if (time >= 0) {
+                opened[ok++] = time;
+                total += time;
+            }
+        }
+        StringBuilder report = new StringBuilder("SSH warm-up report for ").append(target)
+                .append(": ").append(ok).append('/').append(count).append(" sessions opened in ")
+                .append(wallTime).append(" ms");
+        if (ok > 0) {
+            Arrays.sort(opened, 0, ok);
+            report.append(", connect time min=").append(opened[0])
+                    .append(" avg=").append(total / ok)
+                    .append(" p90=").append(opened[(int) Math.ceil(ok * 0.9) - 1])
+                    .append(" max=").append(opened[ok - 1]).append(" ms");
+        }
+        log.info(report.toString());
+
+        if (ok < count) {
+            log.error("SSH warm-up failed for " + target + ", " + failures.get()
+                    + " connection(s) failed: " + firstFailure.get() + ". Stopping the test.");
+            StandardJMeterEngine.stopEngineNow();
+        }
+    }
+
+    @Override
+    public void testStarted() {
+        if (warmupSessions > 0) {
+            warmUp();
+        }
+    }
+
+    @Override
+    public void testStarted(String host) {
+        testStarted();
+    }
+
+    @Override
+    public void testEnded() {
+        SSHSessionPool.clear();
+        SSHJumpHost.closeAll();
+    }
+
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
+    /**
+     * Returns the label of the samples, built from the sampler name and the
+     * connection settings. The label is cached as long as these do not change.
+     */
+    protected String getSampleLabel() {
+        String name = getName();
+        if (sampleLabel == null || port != labelPort || !Objects.equals(name, labelName)
+                || !Objects.equals(username, labelUsername) || !Objects.equals(hostname, labelHostname)) {
+            labelName = name;
+            labelUsername = username;
+            labelHostname = hostname;
+            labelPort = port;
+            sampleLabel = name + ":(" + username + "@" + hostname + ":" + port + ")";
+        }
+        return sampleLabel;
+    }
+
+    /**
+     * Returns the response buffer of this sampler, emptied. Samplers are
+     * cloned for each thread so the buffer is never shared between threads.
+     */
+    protected ResponseBuffer getResponseBuffer() {
+        if (responseBuffer == null) {
+            responseBuffer = new ResponseBuffer();
+        } else {
+            responseBuffer.reset();
+        }
+        return responseBuffer;
+    }
+
     // Accessors
     public void setSshkeyfile(String sshKeyFile) {
         this.sshkeyfile = sshKeyFile;
@@ -143,6 +403,38 @@ public abstract class AbstractSSHSampler extends AbstractSampler implements Test
         this.connectionTimeout = connectionTimeout;
     }
 
+    public int getWarmupSessions() {
+        return warmupSessions;
+    }
+
+    public void setWarmupSessions(int warmupSessions) {
+        this.warmupSessions = warmupSessions;
+    }
+
+    public String getJumpHostname() {
+        return jumpHostname;
+    }
+
+    public void setJumpHostname(String jumpHostname) {
+        this.jumpHostname = jumpHostname;
+    }
+
+    public int getJumpPort() {
+        return jumpPort;
+    }
+
+    public void setJumpPort(int jumpPort) {
+        this.jumpPort = jumpPort;
+    }
+
+    public String getJumpUsername() {
+        return jumpUsername;
+    }
+
+    public void setJumpUsername(String jumpUsername) {
+        this.jumpUsername = jumpUsername;
+    }
+
     protected Session getSession() {
         return session;
     }
@@ -34,6 +34,13 @@ public abstract class AbstractSSHSamplerBeanInfo extends BeanInfoSupport {
                     "connectionTimeout"
                 });
 
+        createPropertyGroup("jumpHost", // $NON-NLS-1$
+                new String[]{
+                    "jumpHostname", // $NON-NLS-1$
+                    "jumpPort", // $NON-NLS-1$
+                    "jumpUsername" // $NON-NLS-1$
+                });
+
         createPropertyGroup("user", // $NON-NLS-1$
                 new String[]{
                     "username", // $NON-NLS-1$
@@ -46,6 +53,11 @@ public abstract class AbstractSSHSamplerBeanInfo extends BeanInfoSupport {
                     "passphrase" // $NON-NLS-1$
                 });
 
+        createPropertyGroup("warmup", // $NON-NLS-1$
+                new String[]{
+                    "warmupSessions" // $NON-NLS-1$
+                });
+
         PropertyDescriptor p;
         p = property("username"); // $NON-NLS-1$
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
@@ -76,5 +88,21 @@ public abstract class AbstractSSHSamplerBeanInfo extends BeanInfoSupport {
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, new Integer(5000));
 
+        p = property("jumpHostname"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+
+        p = property("jumpPort"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(22));
+
+        p = property("jumpUsername"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+
+        p = property("warmupSessions"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(0));
+
     }
 }
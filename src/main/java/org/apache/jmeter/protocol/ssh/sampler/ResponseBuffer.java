@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Growable byte buffer reused across samples of a sampler thread.
+ *
+ * Streams are copied straight into the backing array, so the only
+ * allocation left per sample is the final response byte array.
+ * Line terminators are normalized like BufferedReader.readLine() did, so
+ * responses are the same as when they were built line by line.
+ */
+class ResponseBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 8192;
+
+    // Larger buffers are released on reset so that a single huge response
+    // does not stay pinned in memory for the rest of the test
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private long rawCount = 0;
+    private boolean pendingCarriageReturn = false;
+
+    ResponseBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    @Override
+    public synchronized void reset() {
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        super.reset();
+        rawCount = 0;
+        pendingCarriageReturn = false;
+    }
+
+    /**
+     * Appends the given bytes to the buffer
+     *
+     * @param bytes Bytes to append
+     */
+    public void append(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads the stream until its end, directly into the buffer, the same way
+     * lines used to be read with a BufferedReader: "\r\n" and "\r" line
+     * terminators are turned into "\n" and a non empty stream always ends
+     * with "\n". Carriage returns are dropped in place, without any copy.
+     *
+     * @param in Stream to read
+     * @return Number of bytes read from the stream
+     * @throws IOException Error while reading the stream
+     */
+    public synchronized long readLinesFrom(InputStream in) throws IOException {
+        long total = 0;
+        while (true) {
+            if (count == buf.length) {
+                byte[] grown = new byte[buf.length << 1];
+                System.arraycopy(buf, 0, grown, 0, count);
+                buf = grown;
+            }
+            int read = in.read(buf, count, buf.length - count);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+            rawCount += read;
+
+            int end = count + read;
+            int w = count;
+            for (int r = count; r < end; r++) {
+                byte b = buf[r];
+                if (b == '\n' && pendingCarriageReturn) {
+                    // Second half of a "\r\n" already written as "\n"
+                    pendingCarriageReturn = false;
+                    continue;
+                }
+                pendingCarriageReturn = b == '\r';
+                buf[w++] = pendingCarriageReturn ? (byte) '\n' : b;
+            }
+            count = w;
+        }
+        pendingCarriageReturn = false;
+        if (total > 0 && buf[count - 1] != '\n') {
+            write('\n');
+        }
+        return total;
+    }
+
+    /**
+     * Returns the size of the backing array, that stays allocated between samples
+     */
+    synchronized int capacity() {
+        return buf.length;
+    }
+
+    /**
+     * Returns the number of bytes read from streams since the last reset,
+     * before line terminators were rewritten
+     */
+    public synchronized long getRawCount() {
+        return rawCount;
+    }
+}
@@ -20,9 +20,8 @@ package org.apache.jmeter.protocol.ssh.sampler;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jorphan.logging.LoggingManager;
@@ -36,6 +35,13 @@ import org.apache.log.Logger;
 public class SSHCommandSampler extends AbstractSSHSampler {
     
     private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final byte[] STDOUT_HEADER = "=== stdin ===\n\n".getBytes();
+    private static final byte[] STDERR_HEADER = "\n\n=== stderr ===\n\n".getBytes();
+
+    // Bounds of the backoff while waiting for the channel to close
+    private static final long CLOSE_POLL_MIN_INTERVAL = 1;
+    private static final long CLOSE_POLL_MAX_INTERVAL = 64;
     
     private String command = "date";
     private boolean useReturnCode = true;
@@ -51,7 +57,7 @@ public class SSHCommandSampler extends AbstractSSHSampler {
      */
     public SampleResult sample(Entry e) {
         SampleResult res = new SampleResult();
-        res.setSampleLabel(getName() + ":(" + getUsername() + "@" + getHostname() + ":" + getPort() + ")");
+        res.setSampleLabel(getSampleLabel());
 
 
 
@@ -60,7 +66,6 @@ public class SSHCommandSampler extends AbstractSSHSampler {
         res.setDataType(SampleResult.TEXT);
         res.setContentType("text/plain");
 
-        String response;
         if (getSession() == null) {
             connect();
         }
@@ -68,13 +73,11 @@ public class SSHCommandSampler extends AbstractSSHSampler {
         try {
             if (getSession() == null) {
                 log.error("Failed to connect to server with credentials "
-                        + getUsername() + "@" + getHostname() + ":" + getPort()
-                        + " pw=" + getPassword());
+                        + getUsername() + "@" + getHostname() + ":" + getPort());
                 throw new NullPointerException("Failed to connect to server: " + getFailureReason());
             }
 
-            response = doCommand(getSession(), command, res);
-            res.setResponseData(response.getBytes());
+            res.setResponseData(doCommand(getSession(), command, res));
 
             if(useReturnCode){
                 res.setSuccessful("0".equals(res.getResponseCode()));
@@ -115,39 +118,41 @@ public class SSHCommandSampler extends AbstractSSHSampler {
      * @throws JSchException 
      * @throws IOException Error has occurred down in the network layer
      */
-    private String doCommand(Session session, String command, SampleResult res) throws JSchException, IOException {
-        StringBuilder sb = new StringBuilder();
+    private byte[] doCommand(Session session, String command, SampleResult res) throws JSchException, IOException {
+        ResponseBuffer out = getResponseBuffer();
         ChannelExec channel = (ChannelExec) session.openChannel("exec");
         channel.setPty(useTty);
 
-        BufferedReader br = new BufferedReader(new InputStreamReader(channel.getInputStream()));
-        BufferedReader err = new BufferedReader(new InputStreamReader(channel.getErrStream()));
+        InputStream in = channel.getInputStream();
+        InputStream err = channel.getErrStream();
         channel.setCommand(command);
         res.sampleStart();
         channel.connect();
 
         if(printStdErr){
-            sb.append("=== stdin ===\n\n");
+            out.append(STDOUT_HEADER);
         }
         
-        for (String line = br.readLine(); line != null; line = br.readLine()) {
-            sb.append(line);
-            sb.append("\n");
-        }
+        out.readLinesFrom(in);
         
         if(printStdErr){
-            sb.append("\n\n=== stderr ===\n\n");
-            for (String line = err.readLine(); line != null; line = err.readLine()) {
-                sb.append(line);
-                sb.append("\n");
-            }
+            out.append(STDERR_HEADER);
+            out.readLinesFrom(err);
         }
         
-        while (true) {
-            if (channel.isClosed()) {
+        // Only reached after the end of the output, the exit status usually
+        // follows within a round trip: poll finely first so that the sample
+        // time is not rounded up, then back off so that the threads waiting
+        // on a slow close do not wake up a thousand times per second each
+        long pollInterval = CLOSE_POLL_MIN_INTERVAL;
+        while (!channel.isClosed()) {
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException ee) {
+                Thread.currentThread().interrupt();
                 break;
             }
-            try {Thread.sleep(100);} catch (Exception ee){};
+            pollInterval = Math.min(CLOSE_POLL_MAX_INTERVAL, pollInterval * 2);
         }
 
         if(useReturnCode){
@@ -160,7 +165,7 @@ public class SSHCommandSampler extends AbstractSSHSampler {
         
 
         channel.disconnect();
-        return sb.toString();
+        return out.toByteArray();
     }
     
     // Accessors
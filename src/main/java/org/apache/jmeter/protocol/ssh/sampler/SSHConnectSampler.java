@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.HostKey;
+import com.jcraft.jsch.HostKeyRepository;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SocketFactory;
+import com.jcraft.jsch.UserInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * SSH Sampler that only establishes and tears down sessions, to measure
+ * the connection capacity of a server.
+ *
+ * The connection time is split in phases:
+ * <ul>
+ * <li>tcp: TCP connection to the server</li>
+ * <li>kex: protocol version exchange and key exchange. JSch verifies the
+ * signature of the exchange hash with the server host key at the end of
+ * the key exchange, so this cryptographic check is part of this phase.</li>
+ * <li>knownhosts: lookup of the host key in the known hosts repository</li>
+ * <li>auth: new keys activation and user authentication</li>
+ * </ul>
+ * Key exchange, cipher, MAC and host key algorithms can be forced so that
+ * combinations can be swept with variables, for instance from a CSV Data Set.
+ */
+public class SSHConnectSampler extends AbstractSSHSampler {
+
+    private static final long NOT_REACHED = -1;
+
+    private String kex = "";
+    private String ciphers = "";
+    private String macs = "";
+    private String hostKeyAlgorithms = "";
+
+    // Phase end times of the current sample, in nanoseconds
+    private long tcpEnd;
+    private long knownHostsStart;
+    private long knownHostsEnd;
+
+    public SSHConnectSampler() {
+        super("SSH Connect Sampler");
+    }
+
+    /**
+     * Returns the duration of each connection phase
+     */
+    public SampleResult sample(Entry e) {
+        SampleResult res = new SampleResult();
+        res.setSampleLabel(getAlgorithmsLabel());
+
+        // Set up sampler return types
+        res.setSamplerData(getAlgorithms());
+        res.setDataType(SampleResult.TEXT);
+        res.setContentType("text/plain");
+
+        tcpEnd = NOT_REACHED;
+        knownHostsStart = NOT_REACHED;
+        knownHostsEnd = NOT_REACHED;
+
+        Session session = null;
+        res.sampleStart();
+        long start = System.nanoTime();
+        try {
+            session = openSession();
+            long end = System.nanoTime();
+            res.sampleEnd();
+
+            // Without a direct TCP connection (jump host), the tunnel opening is part of the key exchange
+            long tcp = tcpEnd == NOT_REACHED ? start : tcpEnd;
+            StringBuilder sb = new StringBuilder();
+            sb.append("tcp=").append(millis(start, tcp)).append('\n');
+            sb.append("kex=").append(millis(tcp, knownHostsStart)).append('\n');
+            sb.append("knownhosts=").append(millis(knownHostsStart, knownHostsEnd)).append('\n');
+            sb.append("auth=").append(millis(knownHostsEnd, end)).append('\n');
+            sb.append("server=").append(session.getServerVersion()).append('\n');
+            HostKey hostKey = session.getHostKey();
+            if (hostKey != null) {
+                sb.append("hostkey.type=").append(hostKey.getType()).append('\n');
+            }
+            res.setResponseData(sb.toString().getBytes());
+
+            res.setConnectTime(millis(start, tcp));
+            res.setLatency(millis(start, knownHostsEnd));
+            res.setSuccessful(true);
+            res.setResponseCodeOK();
+            res.setResponseMessageOK();
+        } catch (JSchException e1) {
+            res.sampleEnd();
+            res.setSuccessful(false);
+            res.setResponseCode("JSchException");
+            res.setResponseMessage(e1.getMessage() + " (" + getReachedPhase() + ")");
+        } finally {
+            if (session != null) {
+                session.disconnect();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Warm-up is skipped: every sample measures the opening of its own session
+     */
+    @Override
+    public void testStarted() {
+    }
+
+    @Override
+    protected void configureSession(Session newSession) {
+        newSession.setSocketFactory(new TimedSocketFactory());
+        newSession.setHostKeyRepository(new TimedHostKeyRepository(newSession.getHostKeyRepository()));
+        if (kex.length() > 0) {
+            newSession.setConfig("kex", kex);
+        }
+        if (ciphers.length() > 0) {
+            newSession.setConfig("cipher.c2s", ciphers);
+            newSession.setConfig("cipher.s2c", ciphers);
+        }
+        if (macs.length() > 0) {
+            newSession.setConfig("mac.c2s", macs);
+            newSession.setConfig("mac.s2c", macs);
+        }
+        if (hostKeyAlgorithms.length() > 0) {
+            newSession.setConfig("server_host_key", hostKeyAlgorithms);
+        }
+    }
+
+    private String getReachedPhase() {
+        if (tcpEnd == NOT_REACHED && knownHostsStart == NOT_REACHED) {
+            return "tcp";
+        } else if (knownHostsStart == NOT_REACHED) {
+            return "kex";
+        } else if (knownHostsEnd == NOT_REACHED) {
+            return "knownhosts";
+        }
+        return "auth";
+    }
+
+    private String getAlgorithms() {
+        return "kex=" + kex + " cipher=" + ciphers + " mac=" + macs + " hostkey=" + hostKeyAlgorithms;
+    }
+
+    /**
+     * Adds the forced algorithms to the label, so that each combination is
+     * reported separately by the listeners
+     */
+    private String getAlgorithmsLabel() {
+        if (kex.length() == 0 && ciphers.length() == 0 && macs.length() == 0 && hostKeyAlgorithms.length() == 0) {
+            return getSampleLabel();
+        }
+        return getSampleLabel() + "[" + kex + "/" + ciphers + "/" + macs + "/" + hostKeyAlgorithms + "]";
+    }
+
+    private static long millis(long from, long to) {
+        if (from == NOT_REACHED || to == NOT_REACHED) {
+            return 0;
+        }
+        return (to - from) / 1000000L;
+    }
+
+    /**
+     * Socket factory recording the end of the TCP connection
+     */
+    private class TimedSocketFactory implements SocketFactory {
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), getConnectionTimeout());
+            tcpEnd = System.nanoTime();
+            return socket;
+        }
+
+        @Override
+        public InputStream getInputStream(Socket socket) throws IOException {
+            return socket.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream(Socket socket) throws IOException {
+            return socket.getOutputStream();
+        }
+    }
+
+    /**
+     * Host key repository recording the time spent looking up the host key.
+     * JSch calls it once the key exchange and its signature are verified.
+     */
+    private class TimedHostKeyRepository implements HostKeyRepository {
+
+        private final HostKeyRepository delegate;
+
+        TimedHostKeyRepository(HostKeyRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int check(String host, byte[] key) {
+            knownHostsStart = System.nanoTime();
+            try {
+                return delegate.check(host, key);
+            } finally {
+                knownHostsEnd = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void add(HostKey hostkey, UserInfo ui) {
+            // Keys of the tested server are not remembered across connections
+        }
+
+        @Override
+        public void remove(String host, String type) {
+            delegate.remove(host, type);
+        }
+
+        @Override
+        public void remove(String host, String type, byte[] key) {
+            delegate.remove(host, type, key);
+        }
+
+        @Override
+        public String getKnownHostsRepositoryID() {
+            return delegate.getKnownHostsRepositoryID();
+        }
+
+        @Override
+        public HostKey[] getHostKey() {
+            return delegate.getHostKey();
+        }
+
+        @Override
+        public HostKey[] getHostKey(String host, String type) {
+            return delegate.getHostKey(host, type);
+        }
+    }
+
+    // Accessors
+    public String getKex() {
+        return kex;
+    }
+
+    public void setKex(String kex) {
+        this.kex = kex;
+    }
+
+    public String getCiphers() {
+        return ciphers;
+    }
+
+    public void setCiphers(String ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    public String getMacs() {
+        return macs;
+    }
+
+    public void setMacs(String macs) {
+        this.macs = macs;
+    }
+
+    public String getHostKeyAlgorithms() {
+        return hostKeyAlgorithms;
+    }
+
+    public void setHostKeyAlgorithms(String hostKeyAlgorithms) {
+        this.hostKeyAlgorithms = hostKeyAlgorithms;
+    }
+}
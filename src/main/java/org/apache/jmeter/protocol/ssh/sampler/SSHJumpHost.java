@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.ChannelDirectTCPIP;
+import com.jcraft.jsch.Proxy;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SocketFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Jump host (bastion) sessions shared by all the samplers of the engine.
+ *
+ * Target sessions are tunneled through "direct-tcpip" channels of the
+ * bastion session, which is only established once per bastion and user.
+ */
+final class SSHJumpHost {
+
+    private static final Map<String, Session> bastions = new HashMap<String, Session>();
+
+    // One lock per bastion, held while it connects, so that an unreachable
+    // bastion does not block the threads using other ones
+    private static final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    private SSHJumpHost() {
+    }
+
+    /**
+     * Returns the lock guarding the connection to a bastion
+     *
+     * @param key Bastion key, see {@link SSHSessionPool#key(String, String, String, String, String)}
+     * @return Lock object, the same for a given key
+     */
+    static Object lockFor(String key) {
+        Object lock = locks.get(key);
+        if (lock == null) {
+            Object created = new Object();
+            lock = locks.putIfAbsent(key, created);
+            if (lock == null) {
+                lock = created;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Returns the shared session to a bastion if it is still connected
+     *
+     * @param key Bastion key, see {@link SSHSessionPool#key(String, String, String, String, String)}
+     * @return Connected session or null
+     */
+    static Session get(String key) {
+        synchronized (bastions) {
+            Session bastion = bastions.get(key);
+            if (bastion != null && !bastion.isConnected()) {
+                bastions.remove(key);
+                bastion = null;
+            }
+            return bastion;
+        }
+    }
+
+    /**
+     * Registers the shared session to a bastion
+     *
+     * @param key Bastion key, see {@link SSHSessionPool#key(String, String, String, String, String)}
+     * @param bastion Connected session
+     */
+    static void put(String key, Session bastion) {
+        synchronized (bastions) {
+            bastions.put(key, bastion);
+        }
+    }
+
+    /**
+     * Disconnects all the bastion sessions
+     */
+    static void closeAll() {
+        synchronized (bastions) {
+            for (Session bastion : bastions.values()) {
+                bastion.disconnect();
+            }
+            bastions.clear();
+        }
+    }
+
+    /**
+     * JSch proxy opening the connection to the target through a forwarded
+     * channel of the bastion session.
+     */
+    static class ChannelProxy implements Proxy {
+
+        private final Session bastion;
+        private ChannelDirectTCPIP channel;
+        private InputStream in;
+        private OutputStream out;
+
+        ChannelProxy(Session bastion) {
+            this.bastion = bastion;
+        }
+
+        @Override
+        public void connect(SocketFactory socketFactory, String host, int port, int timeout) throws Exception {
+            channel = (ChannelDirectTCPIP) bastion.openChannel("direct-tcpip");
+            channel.setHost(host);
+            channel.setPort(port);
+            in = channel.getInputStream();
+            out = channel.getOutputStream();
+            channel.connect(timeout);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public Socket getSocket() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                channel.disconnect();
+                channel = null;
+            }
+        }
+    }
+}
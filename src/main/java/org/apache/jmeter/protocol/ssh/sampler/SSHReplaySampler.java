@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.io.IOException;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * SSH Sampler that replays a recorded trace of SSH commands.
+ *
+ * All the threads running this sampler on the same trace file share a
+ * single lazy reader: each sample takes the next record, waits until its
+ * recorded offset (divided by the speed factor) has elapsed since the
+ * beginning of the replay, then executes it like the SSH Command sampler.
+ * The thread group must have enough threads to cover the concurrency of
+ * the trace. Threads stop when the end of the trace is reached.
+ */
+public class SSHReplaySampler extends SSHCommandSampler {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private String traceFile = "";
+    private double speedFactor = 1.0;
+
+    public SSHReplaySampler() {
+        super();
+        setName("SSH Replay Sampler");
+    }
+
+    /**
+     * Returns the output of the next command of the trace
+     */
+    @Override
+    public SampleResult sample(Entry e) {
+        SSHTraceReader.Record record;
+        long due;
+        try {
+            SSHTraceReader reader = SSHTraceReader.getReader(traceFile);
+            record = reader.next();
+            if (record == null) {
+                log.info("End of trace " + traceFile + " reached, stopping thread");
+                JMeterContextService.getContext().getThread().stop();
+                return null;
+            }
+            due = reader.scheduleOf(record, speedFactor > 0 ? speedFactor : 1.0);
+        } catch (IOException e1) {
+            SampleResult res = new SampleResult();
+            res.setSampleLabel(getName());
+            res.setSuccessful(false);
+            res.setResponseCode("IOException");
+            res.setResponseMessage(e1.getMessage());
+            return res;
+        }
+
+        long delay = due - System.currentTimeMillis();
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e1) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        // Records are resolved against the configured defaults, which are
+        // restored afterwards so that they apply to the next record too
+        String defaultHostname = getHostname();
+        String defaultUsername = getUsername();
+        try {
+            if (record.host.length() > 0) {
+                setHostname(record.host);
+            }
+            if (record.user.length() > 0) {
+                setUsername(record.user);
+            }
+            setCommand(record.command);
+            return super.sample(e);
+        } finally {
+            setHostname(defaultHostname);
+            setUsername(defaultUsername);
+        }
+    }
+
+    @Override
+    public void testStarted() {
+        SSHTraceReader.closeAll();
+        super.testStarted();
+    }
+
+    @Override
+    public void testEnded() {
+        super.testEnded();
+        SSHTraceReader.closeAll();
+    }
+
+    // Accessors
+    public String getTraceFile() {
+        return traceFile;
+    }
+
+    public void setTraceFile(String traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    public double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    public void setSpeedFactor(double speedFactor) {
+        this.speedFactor = speedFactor;
+    }
+}
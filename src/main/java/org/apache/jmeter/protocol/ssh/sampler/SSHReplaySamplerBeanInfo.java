@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.beans.PropertyDescriptor;
+import org.apache.jmeter.testbeans.gui.FileEditor;
+
+public class SSHReplaySamplerBeanInfo extends AbstractSSHSamplerBeanInfo {
+
+    public SSHReplaySamplerBeanInfo() {
+        
+        super(SSHReplaySampler.class);
+        
+        createPropertyGroup("replay", new String[]{ 
+                    "traceFile", // $NON-NLS-1$
+                    "speedFactor" // $NON-NLS-1$
+                });
+        
+        createPropertyGroup("execute", new String[]{ 
+                    "useReturnCode", // $NON-NLS-1$
+                    "useTty", // $NON-NLS-1$
+                    "printStdErr" // $NON-NLS-1$
+                });
+        
+        // Commands are read from the trace
+        PropertyDescriptor p = property("command"); // $NON-NLS-1$
+        p.setHidden(true);
+        
+        p = property("traceFile"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+        p.setPropertyEditorClass(FileEditor.class);
+        
+        p = property("speedFactor"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Double(1.0));
+        
+        p = property("useReturnCode"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.TRUE);
+        
+        p = property("useTty"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.FALSE);
+        
+        p = property("printStdErr"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.TRUE);
+        
+    }
+    
+}
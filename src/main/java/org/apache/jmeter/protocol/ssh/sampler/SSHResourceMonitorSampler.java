@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Locale;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * SSH Sampler that monitors server resources (CPU, memory, load average
+ * and sshd process count) by reading /proc files.
+ *
+ * A single exec channel is kept open for the whole thread lifetime and
+ * runs a shell loop that dumps the relevant /proc entries every interval.
+ * Each call to sample() blocks until the next snapshot is received, so a
+ * looping thread emits one sample per interval, without any agent on the
+ * monitored host. Samples are stamped with the server time of collection.
+ * If the thread falls behind, buffered snapshots are drained and only the
+ * latest one is reported, along with the number of skipped snapshots.
+ *
+ * This is a dedicated sampler rather than a collector attached to the
+ * command or SFTP samplers: those disconnect their session after every
+ * sample, so there is no long-lived session to attach to. It runs in its
+ * own thread group and holds its own session for the whole test.
+ */
+public class SSHResourceMonitorSampler extends AbstractSSHSampler implements ThreadListener {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final String END_OF_SNAPSHOT = "#END";
+
+    private int interval = 1;
+
+    private ChannelExec channel = null;
+    private BufferedReader reader = null;
+
+    // Previous /proc/stat counters, used to compute CPU usage deltas
+    private long[] previousCpu = null;
+
+    public SSHResourceMonitorSampler() {
+        super("SSH Resource Monitor Sampler");
+    }
+
+    /**
+     * Returns the resources snapshot received at the next interval
+     */
+    public SampleResult sample(Entry e) {
+        SampleResult res = new SampleResult();
+        res.setSampleLabel(getSampleLabel());
+
+        // Set up sampler return types
+        res.setSamplerData(buildCommand());
+        res.setDataType(SampleResult.TEXT);
+        res.setContentType("text/plain");
+
+        try {
+            if (channel == null || channel.isClosed()) {
+                openMonitorChannel();
+            }
+
+            Snapshot snapshot = readSnapshot();
+            int skipped = 0;
+            while (reader.ready()) {
+                // The thread is late, only report the most recent snapshot
+                snapshot = readSnapshot();
+                skipped++;
+            }
+
+            String response = snapshot.metrics;
+            if (skipped > 0) {
+                response += "snapshots.skipped=" + skipped + "\n";
+            }
+            res.setStampAndTime(snapshot.time, 0);
+            res.setResponseData(response.getBytes());
+            res.setSuccessful(true);
+            res.setResponseCodeOK();
+            res.setResponseMessageOK();
+        } catch (JSchException e1) {
+            closeMonitorChannel();
+            res.setSuccessful(false);
+            res.setResponseCode("JSchException");
+            res.setResponseMessage(e1.getMessage());
+        } catch (IOException e1) {
+            closeMonitorChannel();
+            res.setSuccessful(false);
+            res.setResponseCode("IOException");
+            res.setResponseMessage(e1.getMessage());
+        } catch (NullPointerException e1) {
+            closeMonitorChannel();
+            res.setSuccessful(false);
+            res.setResponseCode("Connection Failed");
+            res.setResponseMessage(e1.getMessage());
+        }
+        return res;
+    }
+
+    /**
+     * Opens the session if needed and starts the remote collection loop
+     * inside a long-lived channel.
+     */
+    private void openMonitorChannel() throws JSchException, IOException {
+        closeMonitorChannel();
+        connect();
+        if (getSession() == null) {
+            log.error("Failed to connect to server with credentials "
+                    + getUsername() + "@" + getHostname() + ":" + getPort());
+            throw new NullPointerException("Failed to connect to server: " + getFailureReason());
+        }
+
+        channel = (ChannelExec) getSession().openChannel("exec");
+        channel.setPty(false);
+        channel.setCommand(buildCommand());
+        reader = new BufferedReader(new InputStreamReader(channel.getInputStream()));
+        channel.connect();
+        previousCpu = null;
+    }
+
+    private void closeMonitorChannel() {
+        if (channel != null) {
+            channel.disconnect();
+            channel = null;
+        }
+        reader = null;
+        disconnect();
+        setSession(null);
+    }
+
+    /**
+     * Shell loop run on the server, only relying on /proc and coreutils.
+     */
+    private String buildCommand() {
+        return "while :; do "
+                + "echo \"ts $(date +%s%3N)\"; "
+                + "head -n 1 /proc/stat; "
+                + "grep -E '^(MemTotal|MemFree|MemAvailable|Buffers|Cached):' /proc/meminfo; "
+                + "echo \"loadavg $(cat /proc/loadavg)\"; "
+                + "echo \"sshd $(grep -lx sshd /proc/[0-9]*/comm 2>/dev/null | wc -l)\"; "
+                + "echo '" + END_OF_SNAPSHOT + "'; "
+                + "sleep " + Math.max(1, interval) + "; "
+                + "done";
+    }
+
+    /**
+     * Reads and parses lines until the end of the current snapshot.
+     *
+     * @return Metrics formatted as name=value lines, and collection time
+     * @throws IOException Channel closed or network error
+     */
+    private Snapshot readSnapshot() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        long time = -1;
+        long memTotal = -1;
+        long memFree = -1;
+        long memAvailable = -1;
+        long buffers = 0;
+        long cached = 0;
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (END_OF_SNAPSHOT.equals(line)) {
+                if (memTotal > 0) {
+                    if (memAvailable < 0) {
+                        memAvailable = memFree + buffers + cached;
+                    }
+                    sb.append("mem.total.kb=").append(memTotal).append('\n');
+                    sb.append("mem.available.kb=").append(memAvailable).append('\n');
+                    sb.append("mem.used.percent=")
+                            .append(percent(memTotal - memAvailable, memTotal)).append('\n');
+                }
+                // Fall back to the local clock when date does not support %N
+                return new Snapshot(sb.toString(), time > 0 ? time : System.currentTimeMillis());
+            }
+
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 2) {
+                continue;
+            }
+            String key = fields[0];
+            if ("ts".equals(key)) {
+                try {
+                    time = Long.parseLong(fields[1]);
+                } catch (NumberFormatException e) {
+                    time = -1;
+                }
+            } else if ("cpu".equals(key)) {
+                parseCpu(fields, sb);
+            } else if ("MemTotal:".equals(key)) {
+                memTotal = Long.parseLong(fields[1]);
+            } else if ("MemFree:".equals(key)) {
+                memFree = Long.parseLong(fields[1]);
+            } else if ("MemAvailable:".equals(key)) {
+                memAvailable = Long.parseLong(fields[1]);
+            } else if ("Buffers:".equals(key)) {
+                buffers = Long.parseLong(fields[1]);
+            } else if ("Cached:".equals(key)) {
+                cached = Long.parseLong(fields[1]);
+            } else if ("loadavg".equals(key) && fields.length >= 4) {
+                sb.append("load.1m=").append(fields[1]).append('\n');
+                sb.append("load.5m=").append(fields[2]).append('\n');
+                sb.append("load.15m=").append(fields[3]).append('\n');
+            } else if ("sshd".equals(key)) {
+                sb.append("sshd.processes=").append(fields[1]).append('\n');
+            }
+        }
+        throw new IOException("Monitoring channel closed by server");
+    }
+
+    /**
+     * Computes CPU usage from the aggregated "cpu" line of /proc/stat,
+     * relatively to the previous snapshot.
+     */
+    private void parseCpu(String[] fields, StringBuilder sb) {
+        long[] current = new long[fields.length - 1];
+        for (int i = 1; i < fields.length; i++) {
+            current[i - 1] = Long.parseLong(fields[i]);
+        }
+
+        if (previousCpu != null && previousCpu.length == current.length) {
+            long total = 0;
+            for (int i = 0; i < current.length; i++) {
+                total += current[i] - previousCpu[i];
+            }
+            // user nice system idle iowait irq softirq steal...
+            long idle = current[3] - previousCpu[3];
+            long iowait = current.length > 4 ? current[4] - previousCpu[4] : 0;
+            long user = (current[0] - previousCpu[0]) + (current[1] - previousCpu[1]);
+            long system = current[2] - previousCpu[2];
+
+            sb.append("cpu.used.percent=").append(percent(total - idle - iowait, total)).append('\n');
+            sb.append("cpu.user.percent=").append(percent(user, total)).append('\n');
+            sb.append("cpu.system.percent=").append(percent(system, total)).append('\n');
+            sb.append("cpu.iowait.percent=").append(percent(iowait, total)).append('\n');
+        }
+        previousCpu = current;
+    }
+
+    /**
+     * Parsed metrics of one collection
+     */
+    private static class Snapshot {
+        final String metrics;
+        final long time;
+
+        Snapshot(String metrics, long time) {
+            this.metrics = metrics;
+            this.time = time;
+        }
+    }
+
+    private static String percent(long value, long total) {
+        if (total <= 0) {
+            return "0.00";
+        }
+        return String.format(Locale.ROOT, "%.2f", value * 100.0 / total);
+    }
+
+    @Override
+    public void threadStarted() {
+        // Channel is lazily opened on first sample
+    }
+
+    @Override
+    public void threadFinished() {
+        closeMonitorChannel();
+    }
+
+    // Accessors
+    public int getInterval() {
+        return interval;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+}
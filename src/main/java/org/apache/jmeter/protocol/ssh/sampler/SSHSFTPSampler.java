@@ -21,9 +21,10 @@ import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
-import java.io.BufferedReader;
+import com.jcraft.jsch.SftpProgressMonitor;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.List;
 import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
@@ -45,10 +46,15 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
     public static final String SFTP_COMMAND_MKDIR = "mkdir";
     public static final String SFTP_COMMAND_LS = "ls";
     public static final String SFTP_COMMAND_RENAME = "rename";
+    // Delay before the first reconnection, doubled for each following one
+    private static final long RETRY_DELAY = 500;
+    private static final long MAX_RETRY_DELAY = 8000;
     private String source;
     private String destination;
     private String action;
     private boolean printFile = true;
+    private boolean resume = false;
+    private int maxRetries = 3;
 
     public SSHSFTPSampler() {
         super("SSH SFTP Sampler");
@@ -59,7 +65,7 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
      */
     public SampleResult sample(Entry e) {
         SampleResult res = new SampleResult();
-        res.setSampleLabel(getName() + ":(" + getUsername() + "@" + getHostname() + ":" + getPort() + ")");
+        res.setSampleLabel(getSampleLabel());
 
 
 
@@ -69,22 +75,24 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
         res.setDataType(SampleResult.TEXT);
         res.setContentType("text/plain");
 
-        String response;
-        if (getSession() == null) {
+        // Resumable transfers connect themselves, so that connection failures are retried
+        boolean resumable = resume && (SFTP_COMMAND_GET.equals(action) || SFTP_COMMAND_PUT.equals(action));
+        if (getSession() == null && !resumable) {
             connect();
         }
 
         try {
-            if (getSession() == null) {
-                log.error("Failed to connect to server with credentials "
-                        + getUsername() + "@" + getHostname() + ":" + getPort()
-                        + " pw=" + getPassword());
-                throw new NullPointerException("Failed to connect to server: " + getFailureReason());
+            if (resumable) {
+                res.setResponseData(doResumableTransfer(source, destination, res));
+            } else {
+                if (getSession() == null) {
+                    log.error("Failed to connect to server with credentials "
+                            + getUsername() + "@" + getHostname() + ":" + getPort());
+                    throw new NullPointerException("Failed to connect to server: " + getFailureReason());
+                }
+                res.setResponseData(doFileTransfer(getSession(), source, destination, res));
             }
 
-            response = doFileTransfer(getSession(), source, destination, res);
-            res.setResponseData(response.getBytes());
-
 
             res.setSuccessful(true);
 
@@ -126,8 +134,8 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
      * @throws SftpException
      * @throws IOException
      */
-    private String doFileTransfer(Session session, String src, String dst, SampleResult res) throws JSchException, SftpException, IOException {
-        StringBuilder sb = new StringBuilder();
+    private byte[] doFileTransfer(Session session, String src, String dst, SampleResult res) throws JSchException, SftpException, IOException {
+        ResponseBuffer out = getResponseBuffer();
         ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
 
         res.sampleStart();
@@ -138,10 +146,11 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
             if (!printFile) {
                 channel.get(src, dst);
             } else {
-                BufferedReader br = new BufferedReader(new InputStreamReader(channel.get(src)));
-                for (String line = br.readLine(); line != null; line = br.readLine()) {
-                    sb.append(line);
-                    sb.append("\n");
+                InputStream in = channel.get(src);
+                try {
+                    out.readLinesFrom(in);
+                } finally {
+                    in.close();
                 }
             }
 
@@ -150,8 +159,8 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
         } else if (SFTP_COMMAND_LS.equals(action)) {
             List<ChannelSftp.LsEntry> ls = channel.ls(src);
             for (ChannelSftp.LsEntry line : ls) {
-                sb.append(line.getLongname());
-                sb.append("\n");
+                out.append(line.getLongname().getBytes());
+                out.write('\n');
             }
         } else if (SFTP_COMMAND_RM.equals(action)) {
             channel.rm(src);
@@ -167,7 +176,145 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
 
 
         channel.disconnect();
-        return sb.toString();
+        return out.toByteArray();
+    }
+
+    /**
+     * Transfers a file, reconnecting and resuming from the last received
+     * offset when the connection is lost, up to maxRetries times. The delay
+     * before a reconnection starts at 500 ms and doubles up to 8 s.
+     *
+     * Transfer statistics (reconnections, time spent reconnecting, bytes
+     * transferred and retransferred, throughput) are reported in the
+     * response headers.
+     *
+     * @param src Source path
+     * @param dst Destination path
+     * @return File content when printing a downloaded file, empty otherwise
+     * @throws JSchException Connection failure after the last retry
+     * @throws SftpException Transfer failure not caused by a connection loss
+     * @throws IOException Local file error or network error after the last retry
+     */
+    private byte[] doResumableTransfer(String src, String dst, SampleResult res) throws JSchException, SftpException, IOException {
+        ResponseBuffer out = getResponseBuffer();
+        TransferMonitor monitor = new TransferMonitor();
+        boolean toBuffer = SFTP_COMMAND_GET.equals(action) && printFile;
+        int reconnects = 0;
+
+        res.sampleStart();
+        long reconnectTime = 0;
+        for (;;) {
+            ChannelSftp channel = null;
+            try {
+                if (getSession() == null) {
+                    long connectStart = System.currentTimeMillis();
+                    connect();
+                    if (reconnects > 0) {
+                        reconnectTime += System.currentTimeMillis() - connectStart;
+                    }
+                    if (getSession() == null) {
+                        throw new JSchException("Failed to connect to server: " + getFailureReason());
+                    }
+                }
+                channel = (ChannelSftp) getSession().openChannel("sftp");
+                channel.connect();
+
+                // Resuming before anything was transferred would keep a stale destination
+                int mode = monitor.getTransferred() > 0 ? ChannelSftp.RESUME : ChannelSftp.OVERWRITE;
+                // JSch reports the already transferred length as progress when resuming a file
+                monitor.startAttempt(!toBuffer && mode == ChannelSftp.RESUME);
+                if (toBuffer) {
+                    InputStream in = channel.get(src, monitor, out.getRawCount());
+                    try {
+                        out.readLinesFrom(in);
+                    } finally {
+                        in.close();
+                    }
+                } else if (SFTP_COMMAND_GET.equals(action)) {
+                    channel.get(src, dst, monitor, mode);
+                } else {
+                    channel.put(src, dst, monitor, mode);
+                }
+                channel.disconnect();
+                break;
+            } catch (JSchException | SftpException | IOException e) {
+                boolean connectionLost = getSession() == null || !getSession().isConnected()
+                        || channel == null || !channel.isConnected();
+                if (channel != null) {
+                    channel.disconnect();
+                }
+                if (!connectionLost || reconnects >= maxRetries) {
+                    throw e;
+                }
+                reconnects++;
+                long delay = Math.min(MAX_RETRY_DELAY, RETRY_DELAY << (reconnects - 1));
+                log.warn("SFTP connection lost during " + action + " of " + src
+                        + ", reconnecting in " + delay + " ms (" + reconnects + "/" + maxRetries + ")");
+                disconnect();
+                setSession(null);
+                // Back off so that retries are not all spent while the server is briefly down
+                long backoffStart = System.currentTimeMillis();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                reconnectTime += System.currentTimeMillis() - backoffStart;
+            }
+        }
+        res.sampleEnd();
+
+        long size;
+        if (toBuffer) {
+            size = out.getRawCount();
+        } else if (SFTP_COMMAND_GET.equals(action)) {
+            size = new File(dst).length();
+        } else {
+            size = new File(src).length();
+        }
+        long elapsed = Math.max(1, res.getTime());
+        res.setResponseHeaders("Reconnects: " + reconnects + "\n"
+                + "Reconnect-Time: " + reconnectTime + "\n"
+                + "Bytes-Transferred: " + monitor.getTransferred() + "\n"
+                + "Bytes-Retransferred: " + Math.max(0, monitor.getTransferred() - size) + "\n"
+                + "Throughput-KBps: " + (size * 1000 / 1024 / elapsed) + "\n");
+        return out.toByteArray();
+    }
+
+    /**
+     * Counts the bytes transferred over all the attempts of a transfer
+     */
+    private static class TransferMonitor implements SftpProgressMonitor {
+
+        private long transferred = 0;
+        private boolean skipResumeOffset = false;
+
+        void startAttempt(boolean resumingFile) {
+            skipResumeOffset = resumingFile;
+        }
+
+        long getTransferred() {
+            return transferred;
+        }
+
+        @Override
+        public void init(int op, String src, String dest, long max) {
+        }
+
+        @Override
+        public boolean count(long count) {
+            if (skipResumeOffset) {
+                skipResumeOffset = false;
+            } else {
+                transferred += count;
+            }
+            return true;
+        }
+
+        @Override
+        public void end() {
+        }
     }
 
     // Accessors
@@ -202,4 +349,20 @@ public class SSHSFTPSampler extends AbstractSSHSampler {
     public void setPrintFile(boolean printFile) {
         this.printFile = printFile;
     }
+
+    public boolean getResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
 }
@@ -33,6 +33,11 @@ public class SSHSFTPSamplerBeanInfo extends AbstractSSHSamplerBeanInfo {
                     
                 });
         
+        createPropertyGroup("resilience", new String[]{
+                    "resume", // $NON-NLS-1$
+                    "maxRetries" // $NON-NLS-1$
+                });
+        
         PropertyDescriptor p = property("action"); // $NON-NLS-1$
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(NOT_OTHER, Boolean.TRUE);
@@ -59,6 +64,14 @@ public class SSHSFTPSamplerBeanInfo extends AbstractSSHSamplerBeanInfo {
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, "");
         
+        p = property("resume"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.FALSE);
+        
+        p = property("maxRetries"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(3));
+        
         
         
     }
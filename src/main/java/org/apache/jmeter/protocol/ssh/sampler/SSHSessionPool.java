@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.Session;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Engine wide pool of pre-authenticated sessions, filled during the
+ * warm-up phase and consumed by the samplers on their first connection.
+ */
+final class SSHSessionPool {
+
+    private static final ConcurrentMap<String, Queue<Session>> sessions =
+            new ConcurrentHashMap<String, Queue<Session>>();
+
+    // Number of pooled sessions, so that samplers can skip the lookup once the pool is drained
+    private static final AtomicInteger size = new AtomicInteger();
+
+    private SSHSessionPool() {
+    }
+
+    /**
+     * Returns the user@host:port target of a connection, used in logs
+     */
+    static String target(String username, String hostname, int port) {
+        return username + "@" + hostname + ":" + port;
+    }
+
+    /**
+     * Returns the key of the sessions opened to a target through a route
+     * with given credentials. Sessions are only shared by samplers that
+     * would have opened exactly the same one. Secrets are digested so that
+     * keys can be kept in memory, they must not be logged anyway.
+     *
+     * @param target Target, see {@link #target(String, String, int)}
+     * @param jumpHost Target of the jump host, empty for a direct connection
+     * @param keyFile Private key file, empty for password authentication
+     * @param passphrase Passphrase of the private key
+     * @param password Password
+     * @return Connection key
+     */
+    static String key(String target, String jumpHost, String keyFile, String passphrase, String password) {
+        return target + " via " + jumpHost + " key " + keyFile + " secret " + digest(passphrase + '\0' + password);
+    }
+
+    private static String digest(String secret) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(secret.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not available", e);
+        }
+    }
+
+    /**
+     * Adds a connected session to the pool
+     *
+     * @param key Connection key, see {@link #key(String, String, String, String, String)}
+     * @param session Authenticated session
+     */
+    static void offer(String key, Session session) {
+        Queue<Session> queue = sessions.get(key);
+        if (queue == null) {
+            Queue<Session> created = new ConcurrentLinkedQueue<Session>();
+            queue = sessions.putIfAbsent(key, created);
+            if (queue == null) {
+                queue = created;
+            }
+        }
+        queue.offer(session);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Returns true when no session is pooled, which is always the case
+     * without warm-up and once the warm-up sessions are taken
+     */
+    static boolean isEmpty() {
+        return size.get() <= 0;
+    }
+
+    /**
+     * Takes a still connected session out of the pool
+     *
+     * @param key Connection key, see {@link #key(String, String, String, String, String)}
+     * @return A connected session or null if none is available
+     */
+    static Session poll(String key) {
+        Queue<Session> queue = sessions.get(key);
+        if (queue == null) {
+            return null;
+        }
+        for (Session session = queue.poll(); session != null; session = queue.poll()) {
+            size.decrementAndGet();
+            if (session.isConnected()) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Disconnects and removes all the pooled sessions
+     */
+    static void clear() {
+        for (Queue<Session> queue : sessions.values()) {
+            for (Session session = queue.poll(); session != null; session = queue.poll()) {
+                size.decrementAndGet();
+                session.disconnect();
+            }
+        }
+        sessions.clear();
+    }
+}
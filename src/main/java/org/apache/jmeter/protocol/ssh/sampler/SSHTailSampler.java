@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * SSH Sampler that follows a remote log file and measures how long events
+ * take to show up in it.
+ *
+ * A long-lived exec channel runs "tail -F" on the file and a reader thread
+ * matches each line against a regular expression, whose first group is
+ * either:
+ * <ul>
+ * <li>a timestamp embedded in the line by the application (epoch seconds or
+ * milliseconds, or ISO-8601), or</li>
+ * <li>a correlation id, whose emission time was stored earlier in the
+ * test in the JMeter property "prefix + id", for instance with
+ * ${__setProperty(tail.${id},${__time()})}. The property is removed once
+ * matched.</li>
+ * </ul>
+ * Lines whose origin is more than a day away from their arrival are
+ * ignored. Matched events are queued in a bounded queue (the oldest are dropped
+ * when it is full) and each sample returns one event, with its origin time
+ * as start time and the propagation delay as elapsed time.
+ */
+public class SSHTailSampler extends AbstractSSHSampler implements ThreadListener {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    public static final String MATCH_TIMESTAMP = "timestamp";
+    public static final String MATCH_CORRELATION_ID = "correlationId";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Origins further from the arrival time are not timestamps of this test,
+    // or are in an unexpected unit
+    private static final long MAX_ORIGIN_DISTANCE = 24L * 3600 * 1000;
+
+    private String logFile = "";
+    private String pattern = "";
+    private String matchMode = MATCH_TIMESTAMP;
+    private String propertyPrefix = "tail.";
+    private int timeout = 10000;
+    private int queueSize = 1000;
+    private int maxLineLength = 8192;
+
+    private ChannelExec channel = null;
+    private Thread readerThread = null;
+    private BlockingQueue<TailEvent> events = null;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile String readerFailure = null;
+
+    public SSHTailSampler() {
+        super("SSH Tail Sampler");
+    }
+
+    /**
+     * Returns the next matched line of the followed file
+     */
+    public SampleResult sample(Entry e) {
+        SampleResult res = new SampleResult();
+        res.setSampleLabel(getSampleLabel());
+
+        // Set up sampler return types
+        res.setSamplerData("tail -F " + logFile + " | " + pattern);
+        res.setDataType(SampleResult.TEXT);
+        res.setContentType("text/plain");
+
+        try {
+            if (readerThread == null || !readerThread.isAlive()) {
+                startTail();
+            }
+
+            long waitStart = System.currentTimeMillis();
+            TailEvent event = events.poll(timeout, TimeUnit.MILLISECONDS);
+            if (event == null) {
+                res.setStampAndTime(waitStart, System.currentTimeMillis() - waitStart);
+                res.setSuccessful(false);
+                res.setResponseCode("Timeout");
+                res.setResponseMessage(readerFailure != null ? readerFailure
+                        : "No matching line within " + timeout + " ms");
+                return res;
+            }
+
+            res.setStampAndTime(event.origin, Math.max(0, event.arrival - event.origin));
+            res.setResponseData(event.line.getBytes(UTF8));
+            res.setSuccessful(true);
+            res.setResponseCodeOK();
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                res.setResponseMessage(lost + " events dropped, queue full");
+            } else {
+                res.setResponseMessageOK();
+            }
+        } catch (JSchException e1) {
+            stopTail();
+            res.setSuccessful(false);
+            res.setResponseCode("JSchException");
+            res.setResponseMessage(e1.getMessage());
+        } catch (IOException e1) {
+            stopTail();
+            res.setSuccessful(false);
+            res.setResponseCode("IOException");
+            res.setResponseMessage(e1.getMessage());
+        } catch (PatternSyntaxException e1) {
+            stopTail();
+            res.setSuccessful(false);
+            res.setResponseCode("PatternSyntaxException");
+            res.setResponseMessage(e1.getMessage());
+        } catch (NullPointerException e1) {
+            stopTail();
+            res.setSuccessful(false);
+            res.setResponseCode("Connection Failed");
+            res.setResponseMessage(e1.getMessage());
+        } catch (InterruptedException e1) {
+            Thread.currentThread().interrupt();
+            res.setSuccessful(false);
+            res.setResponseCode("InterruptedException");
+            res.setResponseMessage(e1.getMessage());
+        }
+        return res;
+    }
+
+    /**
+     * Opens the session if needed, starts tail in a long-lived channel and
+     * the thread reading its output.
+     */
+    private void startTail() throws JSchException, IOException {
+        stopTail();
+        final Pattern compiled = Pattern.compile(pattern);
+
+        connect();
+        if (getSession() == null) {
+            log.error("Failed to connect to server with credentials "
+                    + getUsername() + "@" + getHostname() + ":" + getPort());
+            throw new NullPointerException("Failed to connect to server: " + getFailureReason());
+        }
+
+        channel = (ChannelExec) getSession().openChannel("exec");
+        channel.setPty(false);
+        channel.setCommand("tail -n 0 -F '" + logFile.replace("'", "'\\''") + "'");
+        final InputStream in = channel.getInputStream();
+        channel.connect();
+
+        final BlockingQueue<TailEvent> queue = new ArrayBlockingQueue<TailEvent>(Math.max(1, queueSize));
+        events = queue;
+        dropped.set(0);
+        readerFailure = null;
+        readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readLines(in, compiled, queue);
+            }
+        }, getName() + " tail reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void stopTail() {
+        if (channel != null) {
+            // Closing the channel ends the reader thread
+            channel.disconnect();
+            channel = null;
+        }
+        if (readerThread != null) {
+            readerThread.interrupt();
+            readerThread = null;
+        }
+        disconnect();
+        setSession(null);
+    }
+
+    /**
+     * Splits the output in lines using a fixed size buffer, longer lines
+     * are truncated.
+     */
+    private void readLines(InputStream in, Pattern compiled, BlockingQueue<TailEvent> queue) {
+        byte[] buffer = new byte[8192];
+        byte[] line = new byte[Math.max(1, maxLineLength)];
+        int lineLength = 0;
+        try {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                long arrival = System.currentTimeMillis();
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        matchLine(new String(line, 0, lineLength, UTF8), arrival, compiled, queue);
+                        lineLength = 0;
+                    } else if (b != '\r' && lineLength < line.length) {
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+            readerFailure = "tail ended on the server";
+        } catch (IOException e) {
+            readerFailure = "Error reading tail output: " + e.getMessage();
+        }
+    }
+
+    private void matchLine(String line, long arrival, Pattern compiled, BlockingQueue<TailEvent> queue) {
+        Matcher matcher = compiled.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+        String value = matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+        if (value == null) {
+            return;
+        }
+
+        long origin;
+        try {
+            if (MATCH_CORRELATION_ID.equals(matchMode)) {
+                Object emitted = JMeterUtils.getJMeterProperties().remove(propertyPrefix + value);
+                if (emitted == null) {
+                    // Not produced by this test
+                    return;
+                }
+                origin = SSHTimestamps.parse(emitted.toString().trim());
+            } else {
+                origin = SSHTimestamps.parse(value.trim());
+            }
+        } catch (NumberFormatException e) {
+            log.debug("Invalid timestamp in line: " + line);
+            return;
+        }
+        if (Math.abs(arrival - origin) > MAX_ORIGIN_DISTANCE) {
+            log.debug("Timestamp too far from now in line: " + line);
+            return;
+        }
+
+        TailEvent event = new TailEvent(line, origin, arrival);
+        while (!queue.offer(event)) {
+            // Keep memory bounded: drop the oldest event
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A matched line and its timing
+     */
+    private static class TailEvent {
+        final String line;
+        final long origin;
+        final long arrival;
+
+        TailEvent(String line, long origin, long arrival) {
+            this.line = line;
+            this.origin = origin;
+            this.arrival = arrival;
+        }
+    }
+
+    @Override
+    public void threadStarted() {
+        // Tail is lazily started on first sample
+    }
+
+    @Override
+    public void threadFinished() {
+        stopTail();
+    }
+
+    // Accessors
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String getMatchMode() {
+        return matchMode;
+    }
+
+    public void setMatchMode(String matchMode) {
+        this.matchMode = matchMode;
+    }
+
+    public String getPropertyPrefix() {
+        return propertyPrefix;
+    }
+
+    public void setPropertyPrefix(String propertyPrefix) {
+        this.propertyPrefix = propertyPrefix;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getMaxLineLength() {
+        return maxLineLength;
+    }
+
+    public void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+}
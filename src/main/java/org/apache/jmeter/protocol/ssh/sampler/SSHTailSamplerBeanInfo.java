@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.beans.PropertyDescriptor;
+
+public class SSHTailSamplerBeanInfo extends AbstractSSHSamplerBeanInfo {
+
+    public SSHTailSamplerBeanInfo() {
+        
+        super(SSHTailSampler.class);
+        
+        createPropertyGroup("tail", new String[]{ 
+                    "logFile", // $NON-NLS-1$
+                    "pattern", // $NON-NLS-1$
+                    "matchMode", // $NON-NLS-1$
+                    "propertyPrefix", // $NON-NLS-1$
+                    "timeout" // $NON-NLS-1$
+                });
+        
+        createPropertyGroup("limits", new String[]{ 
+                    "queueSize", // $NON-NLS-1$
+                    "maxLineLength" // $NON-NLS-1$
+                });
+        
+        PropertyDescriptor p = property("logFile"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+        
+        p = property("pattern"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");
+        
+        p = property("matchMode"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(NOT_OTHER, Boolean.TRUE);
+        p.setValue(DEFAULT, SSHTailSampler.MATCH_TIMESTAMP);
+        p.setValue(TAGS, new String[]{
+            SSHTailSampler.MATCH_TIMESTAMP,
+            SSHTailSampler.MATCH_CORRELATION_ID
+        });
+        
+        p = property("propertyPrefix"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "tail.");
+        
+        p = property("timeout"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(10000));
+        
+        p = property("queueSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(1000));
+        
+        p = property("maxLineLength"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, new Integer(8192));
+        
+    }
+    
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the timestamps found in traces and log lines.
+ *
+ * Accepted formats are:
+ * <ul>
+ * <li>epoch seconds or milliseconds, with an optional fraction. The unit
+ * is detected by magnitude: values below 1e11 are seconds (1e11 ms is in
+ * 1973, 1e11 s is in year 5138)</li>
+ * <li>ISO-8601 date and time, such as 2017-07-14T02:40:00.123Z or
+ * 2017-07-14 04:40:00+02:00. Without offset, the local time zone is used.</li>
+ * </ul>
+ */
+final class SSHTimestamps {
+
+    private static final double SECONDS_LIMIT = 1e11;
+
+    private static final Pattern ISO_8601 = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})[T ](\\d{2}):(\\d{2})(?::(\\d{2})(?:[.,](\\d+))?)?"
+            + "\\s*(Z|[+-]\\d{2}(?::?\\d{2})?)?");
+
+    private SSHTimestamps() {
+    }
+
+    /**
+     * Parses a timestamp
+     *
+     * @param timestamp Epoch seconds or milliseconds, or ISO-8601 date
+     * @return Epoch milliseconds
+     * @throws NumberFormatException Unsupported format
+     */
+    static long parse(String timestamp) {
+        String value = timestamp.trim();
+        Matcher matcher = ISO_8601.matcher(value);
+        if (matcher.matches()) {
+            return parseIso8601(matcher);
+        }
+        double number = Double.parseDouble(value);
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            throw new NumberFormatException("Invalid timestamp: " + timestamp);
+        }
+        if (Math.abs(number) < SECONDS_LIMIT) {
+            return Math.round(number * 1000);
+        }
+        return (long) number;
+    }
+
+    private static long parseIso8601(Matcher matcher) {
+        String offset = matcher.group(8);
+        TimeZone zone;
+        if (offset == null) {
+            zone = TimeZone.getDefault();
+        } else if ("Z".equals(offset)) {
+            zone = TimeZone.getTimeZone("UTC");
+        } else {
+            String digits = offset.replace(":", "");
+            String minutes = digits.length() > 3 ? digits.substring(3) : "00";
+            zone = TimeZone.getTimeZone("GMT" + digits.substring(0, 3) + ":" + minutes);
+        }
+
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.setLenient(false);
+        calendar.set(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)) - 1,
+                Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)),
+                Integer.parseInt(matcher.group(5)), matcher.group(6) == null ? 0 : Integer.parseInt(matcher.group(6)));
+        String fraction = matcher.group(7);
+        if (fraction != null) {
+            // Only milliseconds are kept
+            fraction = (fraction + "00").substring(0, 3);
+            calendar.set(Calendar.MILLISECOND, Integer.parseInt(fraction));
+        }
+        try {
+            return calendar.getTimeInMillis();
+        } catch (IllegalArgumentException e) {
+            throw new NumberFormatException("Invalid date: " + matcher.group());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jorphan.logging.LoggingManager;
+import org.apache.log.Logger;
+
+/**
+ * Lazy reader of SSH command traces, shared by all the threads replaying
+ * the same file.
+ *
+ * Each line is either a CSV record "timestamp,user,host,command" (the
+ * command is the remainder of the line and may contain commas) or a flat
+ * JSON object with "timestamp", "user", "host" and "command" members.
+ * Timestamps are parsed by {@link SSHTimestamps#parse(String)}. Empty
+ * lines, lines starting with '#' and CSV headers are skipped. A JSON null
+ * user or host is the same as an absent one.
+ */
+final class SSHTraceReader {
+
+    private static final Logger log = LoggingManager.getLoggerForClass();
+
+    private static final Map<String, SSHTraceReader> readers = new HashMap<String, SSHTraceReader>();
+
+    private final String fileName;
+    private BufferedReader reader;
+    private int lineNumber = 0;
+
+    // Replay time origin: timestamp of the first record and matching wall clock time
+    private long firstTimestamp = -1;
+    private long replayStart = -1;
+
+    /**
+     * A single command of the trace
+     */
+    static final class Record {
+        final long timestamp;
+        final String user;
+        final String host;
+        final String command;
+
+        Record(long timestamp, String user, String host, String command) {
+            this.timestamp = timestamp;
+            this.user = user;
+            this.host = host;
+            this.command = command;
+        }
+    }
+
+    private SSHTraceReader(String fileName) throws IOException {
+        this.fileName = fileName;
+        File file = new File(fileName);
+        if (!file.isAbsolute()) {
+            file = new File(FileServer.getFileServer().getBaseDir(), fileName);
+        }
+        this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    }
+
+    /**
+     * Returns the reader shared by all the samplers replaying the file
+     *
+     * @param fileName Trace file, relative to the test plan or absolute
+     * @return Shared reader
+     * @throws IOException File cannot be opened
+     */
+    static SSHTraceReader getReader(String fileName) throws IOException {
+        synchronized (readers) {
+            SSHTraceReader traceReader = readers.get(fileName);
+            if (traceReader == null) {
+                traceReader = new SSHTraceReader(fileName);
+                readers.put(fileName, traceReader);
+            }
+            return traceReader;
+        }
+    }
+
+    /**
+     * Closes all the opened traces
+     */
+    static void closeAll() {
+        synchronized (readers) {
+            for (SSHTraceReader traceReader : readers.values()) {
+                traceReader.close();
+            }
+            readers.clear();
+        }
+    }
+
+    /**
+     * Reads the next record of the trace
+     *
+     * @return Next record or null at end of file
+     * @throws IOException Error while reading the file
+     */
+    synchronized Record next() throws IOException {
+        if (reader == null) {
+            return null;
+        }
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+            Record record;
+            try {
+                record = parse(line);
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping invalid line " + lineNumber + " of " + fileName + ": " + e.getMessage());
+                continue;
+            }
+            if (record == null) {
+                continue;
+            }
+            if (firstTimestamp < 0) {
+                firstTimestamp = record.timestamp;
+                replayStart = System.currentTimeMillis();
+            }
+            return record;
+        }
+        close();
+        return null;
+    }
+
+    /**
+     * Computes when a record must be replayed
+     *
+     * @param record Record read from this trace
+     * @param speedFactor Replay speed, 2 replays twice as fast as recorded
+     * @return Wall clock time of the replay, in milliseconds
+     */
+    synchronized long scheduleOf(Record record, double speedFactor) {
+        long offset = record.timestamp - firstTimestamp;
+        return replayStart + (long) (offset / speedFactor);
+    }
+
+    private synchronized void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("Error closing trace file " + fileName, e);
+            }
+            reader = null;
+        }
+    }
+
+    /**
+     * Parses a non empty line of a trace
+     *
+     * @param line CSV record or JSON object
+     * @return Parsed record, or null for a CSV header
+     * @throws IllegalArgumentException Invalid line
+     */
+    static Record parse(String line) {
+        return line.charAt(0) == '{' ? parseJson(line) : parseCsv(line);
+    }
+
+    private static Record parseCsv(String line) {
+        String[] fields = line.split(",", 4);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("expected timestamp,user,host,command");
+        }
+        String timestamp = fields[0].trim();
+        if (timestamp.length() == 0 || !Character.isDigit(timestamp.charAt(0))) {
+            // Header line
+            return null;
+        }
+        return new Record(SSHTimestamps.parse(timestamp), fields[1].trim(), fields[2].trim(), fields[3].trim());
+    }
+
+    /**
+     * Parses a flat JSON object, nested values are not supported.
+     */
+    private static Record parseJson(String line) {
+        Map<String, String> values = new HashMap<String, String>();
+        int pos = 1;
+        int length = line.length();
+        while (pos < length) {
+            pos = skipSpaces(line, pos);
+            char c = line.charAt(pos);
+            if (c == '}') {
+                break;
+            }
+            if (c == ',') {
+                pos++;
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            pos = readString(line, pos, name);
+            pos = skipSpaces(line, pos);
+            if (pos >= length || line.charAt(pos) != ':') {
+                throw new IllegalArgumentException("expected ':' at column " + pos);
+            }
+            pos = skipSpaces(line, pos + 1);
+            StringBuilder value = new StringBuilder();
+            if (line.charAt(pos) == '"') {
+                pos = readString(line, pos, value);
+            } else {
+                while (pos < length && ",}".indexOf(line.charAt(pos)) < 0) {
+                    value.append(line.charAt(pos++));
+                }
+                if ("null".equals(value.toString().trim())) {
+                    // Same as an absent member
+                    continue;
+                }
+            }
+            values.put(name.toString(), value.toString().trim());
+        }
+
+        String timestamp = values.get("timestamp");
+        String command = values.get("command");
+        if (timestamp == null || command == null) {
+            throw new IllegalArgumentException("missing timestamp or command");
+        }
+        String user = values.get("user");
+        String host = values.get("host");
+        return new Record(SSHTimestamps.parse(timestamp), user == null ? "" : user, host == null ? "" : host, command);
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= line.length()) {
+            throw new IllegalArgumentException("unexpected end of line");
+        }
+        return pos;
+    }
+
+    private static int readString(String line, int pos, StringBuilder sb) {
+        if (line.charAt(pos) != '"') {
+            throw new IllegalArgumentException("expected '\"' at column " + pos);
+        }
+        for (pos++; pos < line.length(); pos++) {
+            char c = line.charAt(pos);
+            if (c == '"') {
+                return pos + 1;
+            }
+            if (c == '\\' && pos + 1 < line.length()) {
+                c = line.charAt(++pos);
+                switch (c) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 >= line.length()) {
+                            throw new IllegalArgumentException("invalid unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(line.substring(pos + 1, pos + 5), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(c);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new IllegalArgumentException("unterminated string");
+    }
+}
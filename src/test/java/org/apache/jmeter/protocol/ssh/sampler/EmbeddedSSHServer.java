@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+import org.apache.sshd.server.forward.AcceptAllForwardingFilter;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+/**
+ * SSH server running on the loopback interface for the tests.
+ *
+ * It accepts a single user with a password, serves SFTP from a temporary
+ * directory, forwards TCP connections and runs scripted commands instead
+ * of a shell. A script is a list of statements separated by ';':
+ * <ul>
+ * <li>echo TEXT: writes TEXT and "\n" to stdout</li>
+ * <li>crlf TEXT: writes TEXT and "\r\n" to stdout</li>
+ * <li>stderr TEXT: writes TEXT and "\n" to stderr</li>
+ * <li>output N: writes N bytes to stdout, in lines of 64 bytes</li>
+ * <li>sleep MS: waits MS milliseconds</li>
+ * <li>exit CODE: ends the command with the given exit status</li>
+ * </ul>
+ */
+class EmbeddedSSHServer implements Closeable {
+
+    static final String USER = "tester";
+    static final String PASSWORD = "secret";
+
+    private final SshServer sshd;
+    private final Path root;
+
+    EmbeddedSSHServer() throws IOException {
+        root = Files.createTempDirectory("ssh-sampler-test");
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+        SimpleGeneratorHostKeyProvider hostKeys = new SimpleGeneratorHostKeyProvider(root.resolve("hostkey.ser"));
+        hostKeys.setAlgorithm("EC");
+        hostKeys.setKeySize(256);
+        sshd.setKeyPairProvider(hostKeys);
+        sshd.setPasswordAuthenticator((user, password, session) -> USER.equals(user) && PASSWORD.equals(password));
+        sshd.setCommandFactory((channel, command) -> new ScriptedCommand(command));
+        sshd.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        sshd.setFileSystemFactory(new VirtualFileSystemFactory(root));
+        // Allows using the server as a jump host
+        sshd.setForwardingFilter(AcceptAllForwardingFilter.INSTANCE);
+        sshd.start();
+    }
+
+    int getPort() {
+        return sshd.getPort();
+    }
+
+    /**
+     * Directory served over SFTP, SFTP paths are relative to it
+     */
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Points a sampler to this server
+     */
+    void configure(AbstractSSHSampler sampler) {
+        sampler.setHostname("127.0.0.1");
+        sampler.setPort(getPort());
+        sampler.setUsername(USER);
+        sampler.setPassword(PASSWORD);
+        sampler.setConnectionTimeout(5000);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sshd.stop(true);
+    }
+
+    /**
+     * Command interpreting the statements of a script in its own thread
+     */
+    private static class ScriptedCommand implements Command, Runnable {
+
+        private final String script;
+        private OutputStream out;
+        private OutputStream err;
+        private ExitCallback callback;
+        private Thread thread;
+
+        ScriptedCommand(String script) {
+            this.script = script;
+        }
+
+        @Override
+        public void setInputStream(InputStream in) {
+        }
+
+        @Override
+        public void setOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void setErrorStream(OutputStream err) {
+            this.err = err;
+        }
+
+        @Override
+        public void setExitCallback(ExitCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void start(ChannelSession channel, Environment env) {
+            thread = new Thread(this, "scripted command");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void destroy(ChannelSession channel) {
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            int status = 0;
+            try {
+                for (String statement : script.split(";")) {
+                    statement = statement.trim();
+                    int space = statement.indexOf(' ');
+                    String verb = space < 0 ? statement : statement.substring(0, space);
+                    String arg = space < 0 ? "" : statement.substring(space + 1);
+                    if ("echo".equals(verb)) {
+                        write(out, arg + "\n");
+                    } else if ("crlf".equals(verb)) {
+                        write(out, arg + "\r\n");
+                    } else if ("stderr".equals(verb)) {
+                        write(err, arg + "\n");
+                    } else if ("output".equals(verb)) {
+                        output(Long.parseLong(arg));
+                    } else if ("sleep".equals(verb)) {
+                        Thread.sleep(Long.parseLong(arg));
+                    } else if ("exit".equals(verb)) {
+                        status = Integer.parseInt(arg);
+                        break;
+                    } else if (verb.length() > 0) {
+                        write(err, "unknown statement: " + statement + "\n");
+                        status = 127;
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                status = 1;
+            } catch (InterruptedException e) {
+                status = 130;
+            }
+            callback.onExit(status);
+        }
+
+        private void output(long size) throws IOException {
+            byte[] line = new byte[64];
+            for (int i = 0; i < line.length - 1; i++) {
+                line[i] = (byte) ('a' + i % 26);
+            }
+            line[line.length - 1] = '\n';
+            for (long written = 0; written < size; written += line.length) {
+                out.write(line, 0, (int) Math.min(line.length, size - written));
+            }
+            out.flush();
+        }
+
+        private static void write(OutputStream stream, String text) throws IOException {
+            stream.write(text.getBytes(StandardCharsets.UTF_8));
+            stream.flush();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import com.jcraft.jsch.SocketFactory;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSch socket factory degrading the traffic received from the server, to
+ * be set on sessions from the configureSession() hook of the samplers.
+ *
+ * Faults apply to every connection, except the disconnection which only
+ * happens on the first one so that reconnections succeed.
+ */
+class FaultInjector implements SocketFactory {
+
+    private long handshakeDelay = 0;
+    private long latency = 0;
+    private long bytesPerSecond = 0;
+    private long stallAfter = -1;
+    private long stallMillis = 0;
+    private long disconnectAfter = -1;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Delays the first bytes sent by the server, as a slow handshake
+     */
+    FaultInjector handshakeDelay(long millis) {
+        this.handshakeDelay = millis;
+        return this;
+    }
+
+    /**
+     * Delays every read from the socket
+     */
+    FaultInjector latency(long millis) {
+        this.latency = millis;
+        return this;
+    }
+
+    /**
+     * Caps the download rate
+     */
+    FaultInjector bandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Stops delivering data once the given number of bytes is received.
+     * Reads time out like a real stalled socket when the socket has a
+     * shorter timeout.
+     */
+    FaultInjector stall(long afterBytes, long millis) {
+        this.stallAfter = afterBytes;
+        this.stallMillis = millis;
+        return this;
+    }
+
+    /**
+     * Closes the first connection once the given number of bytes is received
+     */
+    FaultInjector disconnectAfter(long bytes) {
+        this.disconnectAfter = bytes;
+        return this;
+    }
+
+    /**
+     * Returns the number of connections opened through this factory
+     */
+    int getConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new Socket(host, port);
+    }
+
+    @Override
+    public InputStream getInputStream(Socket socket) throws IOException {
+        boolean first = connections.getAndIncrement() == 0;
+        return new FaultyInputStream(socket, first ? disconnectAfter : -1);
+    }
+
+    @Override
+    public OutputStream getOutputStream(Socket socket) throws IOException {
+        return socket.getOutputStream();
+    }
+
+    private static void pause(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during injected delay");
+        }
+    }
+
+    private class FaultyInputStream extends FilterInputStream {
+
+        private final Socket socket;
+        private final long disconnectAt;
+        private long received = 0;
+        private long firstByteTime = -1;
+        private boolean stalled = false;
+
+        FaultyInputStream(Socket socket, long disconnectAt) throws IOException {
+            super(socket.getInputStream());
+            this.socket = socket;
+            this.disconnectAt = disconnectAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (firstByteTime < 0) {
+                pause(handshakeDelay);
+            }
+            pause(latency);
+
+            if (disconnectAt >= 0) {
+                if (received >= disconnectAt) {
+                    socket.close();
+                    throw new SocketException("Injected disconnection after " + received + " bytes");
+                }
+                len = (int) Math.min(len, disconnectAt - received);
+            }
+            if (stallAfter >= 0 && !stalled) {
+                if (received >= stallAfter) {
+                    stalled = true;
+                    int timeout = socket.getSoTimeout();
+                    if (timeout > 0 && timeout < stallMillis) {
+                        pause(timeout);
+                        throw new SocketTimeoutException("Injected stall after " + received + " bytes");
+                    }
+                    pause(stallMillis);
+                } else {
+                    len = (int) Math.min(len, stallAfter - received);
+                }
+            }
+
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                if (firstByteTime < 0) {
+                    firstByteTime = System.nanoTime();
+                }
+                received += read;
+                if (bytesPerSecond > 0) {
+                    long due = received * 1000 / bytesPerSecond;
+                    pause(due - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstByteTime));
+                }
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+/**
+ * Compares the bytes allocated per response by ResponseBuffer with the
+ * BufferedReader/StringBuilder/getBytes path it replaced, using the
+ * allocation counter of the current thread.
+ */
+public class ResponseBufferAllocationTest {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    private interface Reader {
+        byte[] read(byte[] output) throws IOException;
+    }
+
+    private static byte[] output(int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("line ").append(i).append(" of the command output, with some padding\r\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * Returns the average number of bytes allocated by a read, once warmed up
+     */
+    private static long allocatedBytesPerOp(com.sun.management.ThreadMXBean threads, Reader reader, byte[] output)
+            throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            reader.read(output);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            reader.read(output);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    @Test
+    public void readLinesFromAllocatesLessThanLineByLineCopy() throws IOException {
+        assumeTrue("Thread allocation counters are not available",
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation counters are not supported", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        final ResponseBuffer buffer = new ResponseBuffer();
+        Reader responseBuffer = new Reader() {
+            @Override
+            public byte[] read(byte[] output) throws IOException {
+                buffer.reset();
+                buffer.readLinesFrom(new ByteArrayInputStream(output));
+                return buffer.toByteArray();
+            }
+        };
+        Reader lineByLine = new Reader() {
+            @Override
+            public byte[] read(byte[] output) throws IOException {
+                StringBuilder sb = new StringBuilder();
+                BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(output)));
+                for (String line = br.readLine(); line != null; line = br.readLine()) {
+                    sb.append(line);
+                    sb.append("\n");
+                }
+                return sb.toString().getBytes();
+            }
+        };
+
+        for (int size : new int[]{1024, 64 * 1024, 512 * 1024}) {
+            byte[] output = output(size);
+            assertArrayEquals(lineByLine.read(output), responseBuffer.read(output));
+
+            long oldBytes = allocatedBytesPerOp(threads, lineByLine, output);
+            long newBytes = allocatedBytesPerOp(threads, responseBuffer, output);
+            String figures = "response of " + output.length + " bytes: ResponseBuffer " + newBytes
+                    + " bytes/op, BufferedReader/StringBuilder " + oldBytes + " bytes/op";
+
+            // The response array itself is the only allocation proportional to the output
+            assertTrue(figures, newBytes < output.length * 2);
+            assertTrue(figures, newBytes * 2 < oldBytes);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.jcraft.jsch.Session;
+import java.util.Arrays;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SSHCommandSamplerTest {
+
+    private static EmbeddedSSHServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new EmbeddedSSHServer();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    private static FaultyCommandSampler sampler(String command, FaultInjector faults) {
+        FaultyCommandSampler sampler = new FaultyCommandSampler(faults);
+        server.configure(sampler);
+        sampler.setCommand(command);
+        sampler.setUseTty(false);
+        sampler.setPrintStdErr(false);
+        return sampler;
+    }
+
+    @Test
+    public void elapsedTimeMatchesCommandDuration() {
+        SampleResult res = sampler("sleep 300; echo done", null).sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertEquals("done\n", res.getResponseDataAsString());
+        assertTrue("elapsed " + res.getTime(), res.getTime() >= 300);
+        assertTrue("elapsed " + res.getTime(), res.getTime() < 300 + 150);
+    }
+
+    @Test
+    public void shortCommandsAreNotRoundedToPollingInterval() {
+        // Packets are spaced so that the channel is still open once the output is read
+        FaultyCommandSampler sampler = sampler("echo fast", new FaultInjector().latency(1));
+        long[] times = new long[10];
+        for (int i = 0; i < times.length; i++) {
+            SampleResult res = sampler.sample(new Entry());
+            assertTrue(res.getResponseMessage(), res.isSuccessful());
+            times[i] = res.getTime();
+        }
+        Arrays.sort(times);
+
+        // A 100 ms sleep between checks of the channel state used to add up to 100 ms
+        long median = times[times.length / 2];
+        assertTrue("median elapsed " + median + " ms in " + Arrays.toString(times), median < 100);
+    }
+
+    @Test
+    public void slowHandshakeIsNotCountedInCommandTime() {
+        FaultInjector faults = new FaultInjector().handshakeDelay(400);
+        long start = System.currentTimeMillis();
+        SampleResult res = sampler("echo done", faults).sample(new Entry());
+        long wallTime = System.currentTimeMillis() - start;
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertTrue("wall time " + wallTime, wallTime >= 400);
+        assertTrue("elapsed " + res.getTime(), res.getTime() < 300);
+    }
+
+    @Test
+    public void latencyIsCountedInCommandTime() {
+        SampleResult fast = sampler("echo done", null).sample(new Entry());
+        SampleResult slow = sampler("echo done", new FaultInjector().latency(50)).sample(new Entry());
+
+        assertTrue(slow.getResponseMessage(), slow.isSuccessful());
+        // At least the channel confirmation and the output are delayed
+        assertTrue("elapsed " + slow.getTime() + " vs " + fast.getTime(), slow.getTime() >= fast.getTime() + 100);
+    }
+
+    @Test
+    public void stallDuringHandshakeFailsWithinConnectionTimeout() {
+        FaultyCommandSampler sampler = sampler("echo done", new FaultInjector().stall(0, 10000));
+        sampler.setConnectionTimeout(500);
+        long start = System.currentTimeMillis();
+        SampleResult res = sampler.sample(new Entry());
+        long wallTime = System.currentTimeMillis() - start;
+
+        assertFalse(res.isSuccessful());
+        assertEquals("Connection Failed", res.getResponseCode());
+        assertTrue("wall time " + wallTime, wallTime < 3000);
+    }
+
+    @Test
+    public void disconnectionDuringCommandFails() {
+        SampleResult res = sampler("output 1000000", new FaultInjector().disconnectAfter(50000)).sample(new Entry());
+
+        assertFalse(res.isSuccessful());
+    }
+
+    @Test
+    public void largeOutputIsNotRetainedAfterTheSample() {
+        FaultyCommandSampler sampler = sampler("output 4000000", null);
+        // The same buffer is reused by all the samples of the sampler
+        ResponseBuffer buffer = sampler.getResponseBuffer();
+        SampleResult big = sampler.sample(new Entry());
+        assertTrue(big.getResponseMessage(), big.isSuccessful());
+        assertEquals(4000000, big.getResponseData().length);
+        assertTrue("buffer capacity " + buffer.capacity(), buffer.capacity() >= 4000000);
+
+        sampler.setCommand("echo small");
+        SampleResult small = sampler.sample(new Entry());
+        assertEquals("small\n", small.getResponseDataAsString());
+        assertTrue("buffer capacity " + buffer.capacity(), buffer.capacity() <= 1024 * 1024);
+    }
+
+    @Test
+    public void outputIsSplitInLines() {
+        FaultyCommandSampler sampler = sampler("crlf first; crlf second; stderr oops; exit 3", null);
+        sampler.setPrintStdErr(true);
+        SampleResult res = sampler.sample(new Entry());
+
+        assertFalse(res.isSuccessful());
+        assertEquals("3", res.getResponseCode());
+        assertEquals("=== stdin ===\n\nfirst\nsecond\n\n\n=== stderr ===\n\noops\n", res.getResponseDataAsString());
+    }
+
+    /**
+     * Command sampler connecting through a fault injector
+     */
+    static class FaultyCommandSampler extends SSHCommandSampler {
+
+        private final FaultInjector faults;
+
+        FaultyCommandSampler(FaultInjector faults) {
+            this.faults = faults;
+        }
+
+        @Override
+        protected void configureSession(Session newSession) {
+            if (faults != null) {
+                newSession.setSocketFactory(faults);
+            }
+        }
+    }
+}
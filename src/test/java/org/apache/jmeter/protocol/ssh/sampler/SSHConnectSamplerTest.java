@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SSHConnectSamplerTest {
+
+    private static EmbeddedSSHServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new EmbeddedSSHServer();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    private static Map<String, String> parse(SampleResult res) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (String line : res.getResponseDataAsString().split("\n")) {
+            int equal = line.indexOf('=');
+            if (equal > 0) {
+                values.put(line.substring(0, equal), line.substring(equal + 1));
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void phasesAddUpToElapsedTime() {
+        SSHConnectSampler sampler = new SSHConnectSampler();
+        server.configure(sampler);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        Map<String, String> values = parse(res);
+        long total = 0;
+        for (String phase : new String[]{"tcp", "kex", "knownhosts", "auth"}) {
+            assertNotNull(phase, values.get(phase));
+            total += Long.parseLong(values.get(phase));
+        }
+        // Each phase is truncated to the millisecond
+        assertTrue("phases " + total + " elapsed " + res.getTime(), total <= res.getTime());
+        assertTrue("phases " + total + " elapsed " + res.getTime(), total >= res.getTime() - 5);
+    }
+
+    @Test
+    public void failedAuthenticationIsReportedInAuthPhase() {
+        SSHConnectSampler sampler = new SSHConnectSampler();
+        server.configure(sampler);
+        sampler.setPassword("wrong");
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertFalse(res.isSuccessful());
+        assertTrue(res.getResponseMessage(), res.getResponseMessage().endsWith("(auth)"));
+    }
+
+    @Test
+    public void refusedConnectionIsReportedInTcpPhase() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        SSHConnectSampler sampler = new SSHConnectSampler();
+        server.configure(sampler);
+        sampler.setPort(closedPort);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertFalse(res.isSuccessful());
+        assertTrue(res.getResponseMessage(), res.getResponseMessage().endsWith("(tcp)"));
+    }
+}
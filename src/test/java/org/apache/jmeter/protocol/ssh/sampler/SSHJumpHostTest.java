@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SSHJumpHostTest {
+
+    private static final int CONNECTION_TIMEOUT = 3000;
+
+    private static EmbeddedSSHServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new EmbeddedSSHServer();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @After
+    public void closeBastions() {
+        SSHJumpHost.closeAll();
+    }
+
+    private static SSHCommandSampler sampler(int jumpPort) {
+        SSHCommandSampler sampler = new SSHCommandSampler();
+        server.configure(sampler);
+        sampler.setConnectionTimeout(CONNECTION_TIMEOUT);
+        sampler.setJumpHostname("127.0.0.1");
+        sampler.setJumpPort(jumpPort);
+        sampler.setCommand("echo tunneled");
+        sampler.setUseTty(false);
+        sampler.setPrintStdErr(false);
+        return sampler;
+    }
+
+    @Test
+    public void commandRunsThroughJumpHost() {
+        SampleResult res = sampler(server.getPort()).sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertEquals("tunneled\n", res.getResponseDataAsString());
+    }
+
+    @Test
+    public void unreachableBastionDoesNotBlockOtherBastions() throws Exception {
+        // Accepts connections in its backlog but never answers the SSH handshake
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            final SSHCommandSampler stuck = sampler(silent.getLocalPort());
+            Thread stuckThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    stuck.sample(new Entry());
+                }
+            });
+            stuckThread.start();
+            Thread.sleep(200);
+
+            long start = System.currentTimeMillis();
+            SampleResult res = sampler(server.getPort()).sample(new Entry());
+            long wallTime = System.currentTimeMillis() - start;
+            stuckThread.join();
+
+            assertTrue(res.getResponseMessage(), res.isSuccessful());
+            assertTrue("wall time " + wallTime, wallTime < CONNECTION_TIMEOUT / 2);
+        }
+    }
+}
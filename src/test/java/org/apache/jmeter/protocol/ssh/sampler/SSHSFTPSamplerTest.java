@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.jcraft.jsch.Session;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SSHSFTPSamplerTest {
+
+    private static final int FILE_SIZE = 512 * 1024;
+
+    private static EmbeddedSSHServer server;
+    private static byte[] binaryContent;
+    private static byte[] textContent;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new EmbeddedSSHServer();
+
+        binaryContent = new byte[FILE_SIZE];
+        new Random(42).nextBytes(binaryContent);
+        Files.write(server.getRoot().resolve("binary.dat"), binaryContent);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < FILE_SIZE; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        textContent = text.toString().getBytes("UTF-8");
+        Files.write(server.getRoot().resolve("text.txt"), textContent);
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    private static FaultySFTPSampler sampler(String source, FaultInjector faults) {
+        FaultySFTPSampler sampler = new FaultySFTPSampler(faults);
+        server.configure(sampler);
+        sampler.setAction(SSHSFTPSampler.SFTP_COMMAND_GET);
+        sampler.setSource(source);
+        return sampler;
+    }
+
+    private static File destination() throws Exception {
+        File file = File.createTempFile("sftp-sampler-test", ".dat");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static String header(SampleResult res, String name) {
+        for (String line : res.getResponseHeaders().split("\n")) {
+            if (line.startsWith(name + ": ")) {
+                return line.substring(name.length() + 2);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void resumesFileDownloadAfterDisconnection() throws Exception {
+        FaultInjector faults = new FaultInjector().disconnectAfter(FILE_SIZE / 2);
+        FaultySFTPSampler sampler = sampler("binary.dat", faults);
+        File destination = destination();
+        sampler.setDestination(destination.getAbsolutePath());
+        sampler.setPrintFile(false);
+        sampler.setResume(true);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertEquals(2, faults.getConnections());
+        assertArrayEquals(binaryContent, Files.readAllBytes(destination.toPath()));
+        assertEquals("1", header(res, "Reconnects"));
+        // Backs off before reconnecting, and reports it
+        long reconnectTime = Long.parseLong(header(res, "Reconnect-Time"));
+        assertTrue("reconnect time " + reconnectTime, reconnectTime >= 500 && reconnectTime <= res.getTime());
+        // Resuming from the local file length only retransfers what was in flight
+        long retransferred = Long.parseLong(header(res, "Bytes-Retransferred"));
+        assertTrue("retransferred " + retransferred, retransferred < FILE_SIZE / 4);
+    }
+
+    @Test
+    public void resumesPrintedDownloadAfterDisconnection() throws Exception {
+        FaultInjector faults = new FaultInjector().disconnectAfter(FILE_SIZE / 2);
+        FaultySFTPSampler sampler = sampler("text.txt", faults);
+        sampler.setPrintFile(true);
+        sampler.setResume(true);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertEquals("1", header(res, "Reconnects"));
+        assertArrayEquals(textContent, res.getResponseData());
+    }
+
+    @Test
+    public void overwritesStaleDestinationAfterHandshakeDisconnection() throws Exception {
+        // Dropped during the key exchange, before the transfer started
+        FaultInjector faults = new FaultInjector().disconnectAfter(100);
+        FaultySFTPSampler sampler = sampler("binary.dat", faults);
+        File destination = destination();
+        Files.write(destination.toPath(), new byte[FILE_SIZE]);
+        sampler.setDestination(destination.getAbsolutePath());
+        sampler.setPrintFile(false);
+        sampler.setResume(true);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        assertEquals(2, faults.getConnections());
+        assertEquals("1", header(res, "Reconnects"));
+        assertArrayEquals(binaryContent, Files.readAllBytes(destination.toPath()));
+        assertEquals(String.valueOf(FILE_SIZE), header(res, "Bytes-Transferred"));
+    }
+
+    @Test
+    public void failsAfterDisconnectionWithoutResume() throws Exception {
+        FaultySFTPSampler sampler = sampler("binary.dat", new FaultInjector().disconnectAfter(FILE_SIZE / 2));
+        sampler.setDestination(destination().getAbsolutePath());
+        sampler.setPrintFile(false);
+        sampler.setResume(false);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertFalse(res.isSuccessful());
+    }
+
+    @Test
+    public void bandwidthCapIsReflectedInTimeAndThroughput() throws Exception {
+        long bytesPerSecond = 1024 * 1024;
+        FaultySFTPSampler sampler = sampler("binary.dat", new FaultInjector().bandwidth(bytesPerSecond));
+        sampler.setDestination(destination().getAbsolutePath());
+        sampler.setPrintFile(false);
+        sampler.setResume(true);
+
+        SampleResult res = sampler.sample(new Entry());
+
+        assertTrue(res.getResponseMessage(), res.isSuccessful());
+        long expected = FILE_SIZE * 1000L / bytesPerSecond;
+        assertTrue("elapsed " + res.getTime(), res.getTime() >= expected * 9 / 10);
+        long throughput = Long.parseLong(header(res, "Throughput-KBps"));
+        assertTrue("throughput " + throughput, throughput <= bytesPerSecond / 1024 * 11 / 10);
+    }
+
+    /**
+     * SFTP sampler connecting through a fault injector
+     */
+    static class FaultySFTPSampler extends SSHSFTPSampler {
+
+        private final FaultInjector faults;
+
+        FaultySFTPSampler(FaultInjector faults) {
+            this.faults = faults;
+        }
+
+        @Override
+        protected void configureSession(Session newSession) {
+            newSession.setSocketFactory(faults);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import org.junit.Test;
+
+public class SSHTimestampsTest {
+
+    // 2017-07-14T02:40:00Z
+    private static final long EPOCH_MILLIS = 1500000000000L;
+
+    @Test
+    public void integerSecondsAreDetectedByMagnitude() {
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("1500000000"));
+    }
+
+    @Test
+    public void fractionalSecondsKeepMilliseconds() {
+        assertEquals(EPOCH_MILLIS + 250, SSHTimestamps.parse("1500000000.25"));
+    }
+
+    @Test
+    public void millisecondsAreKept() {
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("1500000000000"));
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse(" 1500000000000 "));
+    }
+
+    @Test
+    public void isoDatesWithOffsets() {
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("2017-07-14T02:40:00Z"));
+        assertEquals(EPOCH_MILLIS + 123, SSHTimestamps.parse("2017-07-14T02:40:00.123456Z"));
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("2017-07-14 04:40:00+02:00"));
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("2017-07-13T21:10:00-0530"));
+        assertEquals(EPOCH_MILLIS, SSHTimestamps.parse("2017-07-14T04:40+02"));
+    }
+
+    @Test
+    public void isoDatesWithoutOffsetUseLocalTime() {
+        Calendar local = new GregorianCalendar(2017, Calendar.JULY, 14, 2, 40, 0);
+        local.set(Calendar.MILLISECOND, 500);
+
+        assertEquals(local.getTimeInMillis(), SSHTimestamps.parse("2017-07-14T02:40:00,5"));
+    }
+
+    @Test
+    public void invalidTimestampsAreRejected() {
+        for (String invalid : new String[]{"", "yesterday", "2017-02-30T00:00:00Z", "NaN", "12:00"}) {
+            try {
+                SSHTimestamps.parse(invalid);
+                fail("accepted " + invalid);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.protocol.ssh.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Test;
+
+public class SSHTraceReaderTest {
+
+    @After
+    public void closeReaders() {
+        SSHTraceReader.closeAll();
+    }
+
+    @Test
+    public void csvCommandKeepsCommas() {
+        SSHTraceReader.Record record = SSHTraceReader.parse("1500000000, ops , web1,echo a,b");
+
+        assertEquals(1500000000000L, record.timestamp);
+        assertEquals("ops", record.user);
+        assertEquals("web1", record.host);
+        assertEquals("echo a,b", record.command);
+    }
+
+    @Test
+    public void csvHeaderIsSkipped() {
+        assertNull(SSHTraceReader.parse("timestamp,user,host,command"));
+    }
+
+    @Test
+    public void jsonRecord() {
+        SSHTraceReader.Record record = SSHTraceReader.parse(
+                "{\"timestamp\": \"2017-07-14T02:40:00Z\", \"user\": \"ops\", \"host\": \"web1\","
+                + " \"command\": \"grep \\\"a,b}\\\" /var/log/app.log\"}");
+
+        assertEquals(1500000000000L, record.timestamp);
+        assertEquals("ops", record.user);
+        assertEquals("web1", record.host);
+        assertEquals("grep \"a,b}\" /var/log/app.log", record.command);
+    }
+
+    @Test
+    public void jsonNullUserAndHostAreAbsent() {
+        SSHTraceReader.Record record = SSHTraceReader.parse(
+                "{\"timestamp\": 1500000000000, \"user\": null, \"host\":null, \"command\": \"uptime\"}");
+
+        assertEquals("", record.user);
+        assertEquals("", record.host);
+        assertEquals("uptime", record.command);
+    }
+
+    @Test
+    public void invalidLinesAreRejected() {
+        for (String invalid : new String[]{"1500000000,ops,web1", "{\"timestamp\": 1500000000}",
+                "{\"timestamp\": 1500000000, \"command\": null}", "{\"command\": \"unterminated}"}) {
+            try {
+                SSHTraceReader.parse(invalid);
+                fail("accepted " + invalid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void fileSkipsCommentsHeadersAndInvalidLines() throws Exception {
+        File trace = File.createTempFile("trace", ".csv");
+        trace.deleteOnExit();
+        Files.write(trace.toPath(), Arrays.asList(
+                "timestamp,user,host,command",
+                "# recorded on web1",
+                "",
+                "1500000000,ops,web1,uptime",
+                "not a record",
+                "{\"timestamp\": 1500000002.5, \"command\": \"date\"}"), StandardCharsets.UTF_8);
+
+        SSHTraceReader reader = SSHTraceReader.getReader(trace.getAbsolutePath());
+        SSHTraceReader.Record first = reader.next();
+        SSHTraceReader.Record second = reader.next();
+
+        assertEquals("uptime", first.command);
+        assertEquals("date", second.command);
+        assertEquals(2500, second.timestamp - first.timestamp);
+        assertEquals(reader.scheduleOf(first, 1.0) + 1250, reader.scheduleOf(second, 2.0));
+        assertNull(reader.next());
+    }
+}